@@ -0,0 +1,435 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.tomitribe.pixie.processor;
+
+import javax.annotation.processing.AbstractProcessor;
+import javax.annotation.processing.RoundEnvironment;
+import javax.annotation.processing.SupportedAnnotationTypes;
+import javax.lang.model.SourceVersion;
+import javax.lang.model.element.AnnotationMirror;
+import javax.lang.model.element.Element;
+import javax.lang.model.element.ElementKind;
+import javax.lang.model.element.ExecutableElement;
+import javax.lang.model.element.Modifier;
+import javax.lang.model.element.NestingKind;
+import javax.lang.model.element.PackageElement;
+import javax.lang.model.element.TypeElement;
+import javax.lang.model.element.VariableElement;
+import javax.lang.model.type.DeclaredType;
+import javax.lang.model.type.TypeKind;
+import javax.lang.model.type.TypeMirror;
+import javax.lang.model.type.WildcardType;
+import javax.lang.model.util.ElementFilter;
+import javax.tools.Diagnostic;
+import javax.tools.FileObject;
+import javax.tools.JavaFileObject;
+import javax.tools.StandardLocation;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.io.Writer;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.function.Function;
+
+/**
+ * Generates an ObserverDispatcher for every class declaring or inheriting @Observes methods.
+ * The dispatcher lists the observer methods and calls each one directly through a switch on
+ * the method's index, so Pixie neither scans the class nor reflects on its methods to deliver
+ * events. It applies the same rules Pixie enforces at registration, reporting violations as
+ * compile errors.
+ *
+ * Classes the generated code cannot reach, such as private nested, local and anonymous
+ * classes, get no dispatcher and are handled by reflection at runtime as before.
+ *
+ * Methods observing a long or double are listed by values, but not dispatched, which could
+ * only pass an Object; Pixie binds them itself so the value is never boxed.
+ *
+ * It also writes a native-image reflect-config.json registering each dispatcher and observer
+ * method, which is all the reflection Pixie does for a class that has a dispatcher.
+ */
+@SupportedAnnotationTypes("*")
+public class ObserverProcessor extends AbstractProcessor {
+
+    static final String OBSERVES = "org.tomitribe.pixie.Observes";
+    static final String BEFORE = "org.tomitribe.pixie.event.BeforeEvent";
+    static final String AFTER = "org.tomitribe.pixie.event.AfterEvent";
+    static final String DISPATCHER = "org.tomitribe.pixie.observer.ObserverDispatcher";
+    static final String SUFFIX = "$$PixieDispatcher";
+    static final String VALUE = "value";
+
+    static final String REFLECT_CONFIG = "META-INF/native-image/org.tomitribe.pixie/observers/reflect-config.json";
+
+    private final Set<String> generated = new TreeSet<>();
+    private final List<String> reflection = new ArrayList<>();
+
+    @Override
+    public SourceVersion getSupportedSourceVersion() {
+        return SourceVersion.latestSupported();
+    }
+
+    @Override
+    public boolean process(final Set<? extends TypeElement> annotations, final RoundEnvironment round) {
+        if (round.processingOver()) {
+            writeReflectConfig();
+            return false;
+        }
+
+        // Pixie is not on the classpath, so there is nothing to generate
+        if (processingEnv.getElementUtils().getTypeElement(OBSERVES) == null) return false;
+
+        // Every class compiled, not only those declaring @Observes, as one may inherit them
+        final Set<TypeElement> observers = new LinkedHashSet<>();
+        for (final Element element : round.getRootElements()) {
+            collectObservers(element, observers);
+        }
+
+        for (final TypeElement observer : observers) {
+            if (isInstantiable(observer) && isReachable(observer)) generate(observer);
+        }
+
+        return false;
+    }
+
+    private void collectObservers(final Element element, final Set<TypeElement> observers) {
+        if (!(element instanceof TypeElement)) return;
+
+        final TypeElement type = (TypeElement) element;
+        if (type.getKind() == ElementKind.CLASS && !observerMethods(type).isEmpty()) observers.add(type);
+
+        for (final TypeElement nested : ElementFilter.typesIn(type.getEnclosedElements())) {
+            collectObservers(nested, observers);
+        }
+    }
+
+    private void generate(final TypeElement observer) {
+        final String binaryName = processingEnv.getElementUtils().getBinaryName(observer).toString();
+        if (!generated.add(binaryName)) return;
+
+        final List<ObserverMethod> methods = new ArrayList<>();
+        final List<ObserverMethod> values = new ArrayList<>();
+        final Map<String, ExecutableElement> owners = new HashMap<>();
+
+        boolean valid = true;
+        for (final ExecutableElement method : observerMethods(observer)) {
+            final ObserverMethod observerMethod = validate(method);
+            if (observerMethod == null) {
+                valid = false;
+                continue;
+            }
+
+            final ExecutableElement existing = owners.put(observerMethod.phase + " " + observerMethod.event, method);
+            if (existing != null) {
+                error(method, "Duplicate @Observes for type " + observerMethod.event + ": " + method
+                        + " conflicts with " + existing
+                        + ". An observer may declare at most one @Observes method per type; remove or merge one.");
+                valid = false;
+                continue;
+            }
+
+            if (VALUE.equals(observerMethod.phase)) {
+                values.add(observerMethod);
+            } else {
+                methods.add(observerMethod);
+            }
+        }
+
+        // the errors already fail the build; a dispatcher would only add noise
+        if (!valid) return;
+
+        final PackageElement pkg = processingEnv.getElementUtils().getPackageOf(observer);
+        final String packageName = pkg.isUnnamed() ? "" : pkg.getQualifiedName().toString();
+        final String simpleName = (packageName.isEmpty() ? binaryName : binaryName.substring(packageName.length() + 1)) + SUFFIX;
+        final String qualifiedName = packageName.isEmpty() ? simpleName : packageName + "." + simpleName;
+        final String observerType = processingEnv.getTypeUtils().erasure(observer.asType()).toString();
+
+        try {
+            final JavaFileObject file = processingEnv.getFiler().createSourceFile(qualifiedName, observer);
+            try (PrintWriter out = new PrintWriter(file.openWriter())) {
+                write(out, packageName, simpleName, observerType, methods, values);
+            }
+        } catch (final IOException e) {
+            error(observer, "Could not write " + qualifiedName + ": " + e.getMessage());
+            return;
+        }
+
+        reflection.add(reflectEntry(qualifiedName, "{\"name\": \"<init>\", \"parameterTypes\": []}"));
+
+        final List<String> entries = new ArrayList<>();
+        final List<ObserverMethod> reflected = new ArrayList<>(methods);
+        reflected.addAll(values);
+        for (final ObserverMethod method : reflected) {
+            entries.add("{\"name\": \"" + method.name + "\", \"parameterTypes\": [\"" + method.parameterBinary + "\"]}");
+        }
+        reflection.add(reflectEntry(binaryName, String.join(", ", entries)));
+    }
+
+    private static String reflectEntry(final String type, final String methods) {
+        return "  {\"name\": \"" + type + "\", \"methods\": [" + methods + "]}";
+    }
+
+    private void write(final PrintWriter out, final String packageName, final String simpleName,
+                       final String observerType, final List<ObserverMethod> methods,
+                       final List<ObserverMethod> values) {
+
+        if (!packageName.isEmpty()) {
+            out.println("package " + packageName + ";");
+            out.println();
+        }
+
+        out.println("/**");
+        out.println(" * Generated by " + ObserverProcessor.class.getName() + " for " + observerType + ". Do not edit.");
+        out.println(" */");
+        out.println("public final class " + simpleName + " implements " + DISPATCHER + " {");
+        out.println();
+
+        out.println("    @Override");
+        out.println("    public String[] methods() {");
+        out.println("        return new String[]{" + join(methods, m -> "\"" + m.name + "\"") + "};");
+        out.println("    }");
+        out.println();
+
+        out.println("    @Override");
+        out.println("    public Class<?>[] parameters() {");
+        out.println("        return new Class<?>[]{" + join(methods, m -> m.parameter + ".class") + "};");
+        out.println("    }");
+        out.println();
+
+        out.println("    @Override");
+        out.println("    public Class<?>[] events() {");
+        out.println("        return new Class<?>[]{" + join(methods, m -> m.event + ".class") + "};");
+        out.println("    }");
+        out.println();
+
+        out.println("    @Override");
+        out.println("    public String[] values() {");
+        out.println("        return new String[]{" + join(values, m -> "\"" + m.name + "\"") + "};");
+        out.println("    }");
+        out.println();
+
+        out.println("    @Override");
+        out.println("    public Class<?>[] valueTypes() {");
+        out.println("        return new Class<?>[]{" + join(values, m -> m.parameter + ".class") + "};");
+        out.println("    }");
+        out.println();
+
+        out.println("    @Override");
+        out.println("    @SuppressWarnings({\"rawtypes\", \"unchecked\"})");
+        out.println("    public void dispatch(final int method, final Object observer, final Object event) throws Throwable {");
+        out.println("        final " + observerType + " target = (" + observerType + ") observer;");
+        out.println("        switch (method) {");
+        for (int i = 0; i < methods.size(); i++) {
+            final ObserverMethod method = methods.get(i);
+            out.println("            case " + i + ":");
+            out.println("                target." + method.name + "((" + method.parameter + ") event);");
+            out.println("                return;");
+        }
+        out.println("            default:");
+        out.println("                throw new IllegalArgumentException(\"No observer method \" + method);");
+        out.println("        }");
+        out.println("    }");
+        out.println("}");
+    }
+
+    private static String join(final List<ObserverMethod> methods, final Function<ObserverMethod, String> item) {
+        final List<String> items = new ArrayList<>();
+        for (final ObserverMethod method : methods) {
+            items.add(item.apply(method));
+        }
+        return String.join(", ", items);
+    }
+
+    /**
+     * Every method of the type, declared or inherited, with an @Observes parameter, in a stable
+     * order so the generated indexes do not change between builds.
+     */
+    private List<ExecutableElement> observerMethods(final TypeElement type) {
+        final List<ExecutableElement> methods = new ArrayList<>();
+        for (final ExecutableElement method : ElementFilter.methodsIn(processingEnv.getElementUtils().getAllMembers(type))) {
+            if (observesParameter(method) != null) methods.add(method);
+        }
+        methods.sort(Comparator.comparing((ExecutableElement method) -> method.getSimpleName().toString())
+                .thenComparing(method -> method.getParameters().toString()));
+        return methods;
+    }
+
+    private VariableElement observesParameter(final ExecutableElement method) {
+        for (final VariableElement parameter : method.getParameters()) {
+            for (final AnnotationMirror annotation : parameter.getAnnotationMirrors()) {
+                if (((TypeElement) annotation.getAnnotationType().asElement()).getQualifiedName().contentEquals(OBSERVES)) {
+                    return parameter;
+                }
+            }
+        }
+        return null;
+    }
+
+    /**
+     * The same checks ObserverManager makes when an observer is added, with the same messages.
+     */
+    private ObserverMethod validate(final ExecutableElement method) {
+        if (method.getParameters().size() > 1) {
+            return error(method, "@Observes method must have only 1 parameter: " + method);
+        }
+        if (method.getModifiers().contains(Modifier.ABSTRACT)) {
+            return error(method, "@Observes method must not be abstract: " + method);
+        }
+        if (method.getModifiers().contains(Modifier.STATIC)) {
+            return error(method, "@Observes method must not be static: " + method);
+        }
+        if (!method.getModifiers().contains(Modifier.PUBLIC)) {
+            return error(method, "@Observes method must be public: " + method);
+        }
+
+        final TypeMirror declared = method.getParameters().get(0).asType();
+        final TypeMirror parameter = processingEnv.getTypeUtils().erasure(declared);
+        final String parameterName = parameter.toString();
+
+        if (parameter.getKind() == TypeKind.LONG || parameter.getKind() == TypeKind.DOUBLE) {
+            return value(method, parameterName);
+        }
+
+        if (!valid(method, parameter)) return null;
+
+        final String phase;
+        final TypeMirror event;
+        if (BEFORE.equals(parameterName) || AFTER.equals(parameterName)) {
+            phase = BEFORE.equals(parameterName) ? "before" : "after";
+            event = typeArgument(method, (DeclaredType) declared);
+            if (event == null || !valid(method, event)) return null;
+        } else {
+            phase = "invoke";
+            event = parameter;
+        }
+
+        return new ObserverMethod(method.getSimpleName().toString(), phase, parameterName, binaryName(parameter),
+                processingEnv.getTypeUtils().erasure(event).toString());
+    }
+
+    private ObserverMethod value(final ExecutableElement method, final String parameterName) {
+        final Map<String, Object> values = new HashMap<>();
+        for (final AnnotationMirror annotation : observesParameter(method).getAnnotationMirrors()) {
+            if (!((TypeElement) annotation.getAnnotationType().asElement()).getQualifiedName().contentEquals(OBSERVES)) continue;
+
+            annotation.getElementValues().forEach((name, value) -> values.put(name.getSimpleName().toString(), value.getValue()));
+        }
+
+        if (Boolean.TRUE.equals(values.get("async"))) {
+            return error(method, "@Observes long and double methods cannot be async: " + method);
+        }
+        if (values.containsKey("key") && !"".equals(values.get("key"))) {
+            return error(method, "@Observes long and double methods cannot be keyed: " + method);
+        }
+
+        return new ObserverMethod(method.getSimpleName().toString(), VALUE, parameterName, parameterName, parameterName);
+    }
+
+    private TypeMirror typeArgument(final ExecutableElement method, final DeclaredType declared) {
+        final String simpleName = declared.asElement().getSimpleName().toString();
+        if (declared.getTypeArguments().isEmpty()) {
+            return error(method, "@Observes " + simpleName + " missing generic type: " + method);
+        }
+
+        final TypeMirror argument = declared.getTypeArguments().get(0);
+        if (argument.getKind() == TypeKind.DECLARED) return argument;
+        if (argument instanceof WildcardType) {
+            return processingEnv.getElementUtils().getTypeElement("java.lang.Object").asType();
+        }
+
+        return error(method, "@Observes " + simpleName + " unsupported generic type: " + argument + "  " + method);
+    }
+
+    private boolean valid(final ExecutableElement method, final TypeMirror type) {
+        if (type.getKind() == TypeKind.ARRAY) {
+            error(method, "@Observes method parameter must be a concrete class (not an array): " + method);
+            return false;
+        }
+        if (type.getKind().isPrimitive()) {
+            error(method, "@Observes method parameter must be a concrete class, long or double (not another primitive): " + method);
+            return false;
+        }
+        if (type.getKind() == TypeKind.DECLARED
+                && ((DeclaredType) type).asElement().getKind() == ElementKind.ANNOTATION_TYPE) {
+            error(method, "@Observes method parameter must not be an annotation: " + method);
+            return false;
+        }
+        return true;
+    }
+
+    private String binaryName(final TypeMirror type) {
+        if (type.getKind() != TypeKind.DECLARED) return type.toString();
+        return processingEnv.getElementUtils().getBinaryName((TypeElement) ((DeclaredType) type).asElement()).toString();
+    }
+
+    private static boolean isInstantiable(final TypeElement type) {
+        return type.getKind() == ElementKind.CLASS && !type.getModifiers().contains(Modifier.ABSTRACT);
+    }
+
+    /**
+     * Can a class in the same package name this type in a cast? Not if it, or any type it is
+     * nested in, is private, local or anonymous.
+     */
+    private static boolean isReachable(final TypeElement type) {
+        Element element = type;
+        while (element instanceof TypeElement) {
+            final TypeElement each = (TypeElement) element;
+            if (each.getModifiers().contains(Modifier.PRIVATE)) return false;
+            if (each.getNestingKind() == NestingKind.LOCAL || each.getNestingKind() == NestingKind.ANONYMOUS) return false;
+            element = each.getEnclosingElement();
+        }
+        return true;
+    }
+
+    private void writeReflectConfig() {
+        if (reflection.isEmpty()) return;
+
+        try {
+            final FileObject file = processingEnv.getFiler().createResource(StandardLocation.CLASS_OUTPUT, "", REFLECT_CONFIG);
+            try (Writer out = file.openWriter()) {
+                out.write("[\n");
+                out.write(String.join(",\n", reflection));
+                out.write("\n]\n");
+            }
+        } catch (final IOException | IllegalStateException e) {
+            processingEnv.getMessager().printMessage(Diagnostic.Kind.WARNING, "Could not write " + REFLECT_CONFIG + ": " + e.getMessage());
+        }
+    }
+
+    private <T> T error(final Element element, final String message) {
+        processingEnv.getMessager().printMessage(Diagnostic.Kind.ERROR, message, element);
+        return null;
+    }
+
+    private static final class ObserverMethod {
+        private final String name;
+        private final String phase;
+        private final String parameter;
+        private final String parameterBinary;
+        private final String event;
+
+        private ObserverMethod(final String name, final String phase, final String parameter,
+                               final String parameterBinary, final String event) {
+            this.name = name;
+            this.phase = phase;
+            this.parameter = parameter;
+            this.parameterBinary = parameterBinary;
+            this.event = event;
+        }
+    }
+}
@@ -0,0 +1,217 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.tomitribe.pixie.processor;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.tomitribe.pixie.observer.ObserverDispatcher;
+import org.tomitribe.pixie.observer.ObserverManager;
+
+import javax.tools.Diagnostic;
+import javax.tools.DiagnosticCollector;
+import javax.tools.JavaCompiler;
+import javax.tools.JavaFileObject;
+import javax.tools.StandardJavaFileManager;
+import javax.tools.ToolProvider;
+import java.io.File;
+import java.io.IOException;
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class ObserverProcessorTest {
+
+    @Rule
+    public final TemporaryFolder tmp = new TemporaryFolder();
+
+    private static final String LISTENER = "package org.example;\n" +
+            "import java.util.ArrayList;\n" +
+            "import java.util.List;\n" +
+            "import org.tomitribe.pixie.Observes;\n" +
+            "import org.tomitribe.pixie.event.AfterEvent;\n" +
+            "import org.tomitribe.pixie.event.BeforeEvent;\n" +
+            "public class Listener {\n" +
+            "    public final List<String> seen = new ArrayList<>();\n" +
+            "    public void before(@Observes final BeforeEvent<String> event) {\n" +
+            "        seen.add(\"before \" + event.getEvent() + \" \" + caller());\n" +
+            "    }\n" +
+            "    public void observe(@Observes final String event) {\n" +
+            "        seen.add(\"observe \" + event + \" \" + caller());\n" +
+            "    }\n" +
+            "    public void after(@Observes final AfterEvent<String> event) {\n" +
+            "        seen.add(\"after \" + event.getEvent() + \" \" + caller());\n" +
+            "    }\n" +
+            "    private static String caller() {\n" +
+            "        return new Throwable().getStackTrace()[2].getClassName();\n" +
+            "    }\n" +
+            "    public static class Sub extends Listener {\n" +
+            "        public void any(@Observes final AfterEvent<?> event) {\n" +
+            "        }\n" +
+            "    }\n" +
+            "    private static class Hidden {\n" +
+            "        public void observe(@Observes final String event) {\n" +
+            "        }\n" +
+            "    }\n" +
+            "}\n";
+
+    @Test
+    public void generatesDispatcher() throws Exception {
+        final File classes = compile("org/example/Listener.java", LISTENER);
+
+        try (URLClassLoader loader = new URLClassLoader(new URL[]{classes.toURI().toURL()}, getClass().getClassLoader())) {
+            final Class<?> dispatcherClass = loader.loadClass("org.example.Listener" + ObserverDispatcher.SUFFIX);
+            final ObserverDispatcher dispatcher = (ObserverDispatcher) dispatcherClass.getConstructor().newInstance();
+
+            assertArrayEquals(new String[]{"after", "before", "observe"}, dispatcher.methods());
+            assertArrayEquals(new Class<?>[]{String.class, String.class, String.class}, dispatcher.events());
+
+            final Object listener = loader.loadClass("org.example.Listener").getConstructor().newInstance();
+            final ObserverManager mgr = new ObserverManager();
+            mgr.addObserver(listener);
+            mgr.fireEvent("hello");
+
+            final String via = dispatcherClass.getName();
+            assertEquals(Arrays.asList(
+                    "before hello " + via,
+                    "observe hello " + via,
+                    "after hello " + via), seen(listener));
+
+            // inherited observer methods are included in the subclass's own dispatcher
+            final ObserverDispatcher sub = (ObserverDispatcher) loader.loadClass("org.example.Listener$Sub" + ObserverDispatcher.SUFFIX)
+                    .getConstructor().newInstance();
+            assertArrayEquals(new String[]{"after", "any", "before", "observe"}, sub.methods());
+            assertEquals(Object.class, sub.events()[1]);
+        }
+
+        assertFalse(new File(classes, "org/example/Listener$Hidden" + ObserverDispatcher.SUFFIX + ".class").exists());
+
+        final String config = new String(Files.readAllBytes(new File(classes, ObserverProcessor.REFLECT_CONFIG).toPath()),
+                StandardCharsets.UTF_8);
+        assertTrue(config, config.contains("{\"name\": \"observe\", \"parameterTypes\": [\"java.lang.String\"]}"));
+        assertTrue(config, config.contains("\"org.example.Listener" + ObserverDispatcher.SUFFIX + "\""));
+    }
+
+    @Test
+    public void invalidObserverFailsCompilation() throws Exception {
+        final List<String> errors = new ArrayList<>();
+        compile(errors, "org/example/Bad.java", "package org.example;\n" +
+                "import org.tomitribe.pixie.Observes;\n" +
+                "public class Bad {\n" +
+                "    void observe(@Observes final String event) {\n" +
+                "    }\n" +
+                "}\n");
+
+        assertEquals(1, errors.size());
+        assertTrue(errors.get(0), errors.get(0).startsWith("@Observes method must be public: observe(java.lang.String)"));
+    }
+
+    @Test
+    public void valuesLeftOutOfDispatcher() throws Exception {
+        final File classes = compile("org/example/Meter.java", "package org.example;\n" +
+                "import java.util.ArrayList;\n" +
+                "import java.util.List;\n" +
+                "import org.tomitribe.pixie.Observes;\n" +
+                "public class Meter {\n" +
+                "    public final List<String> seen = new ArrayList<>();\n" +
+                "    public void observe(@Observes final String event) {\n" +
+                "        seen.add(\"observe \" + event);\n" +
+                "    }\n" +
+                "    public void count(@Observes final long value) {\n" +
+                "        seen.add(\"count \" + value);\n" +
+                "    }\n" +
+                "}\n");
+
+        try (URLClassLoader loader = new URLClassLoader(new URL[]{classes.toURI().toURL()}, getClass().getClassLoader())) {
+            final ObserverDispatcher dispatcher = (ObserverDispatcher) loader.loadClass("org.example.Meter" + ObserverDispatcher.SUFFIX)
+                    .getConstructor().newInstance();
+            assertArrayEquals(new String[]{"observe"}, dispatcher.methods());
+            assertArrayEquals(new String[]{"count"}, dispatcher.values());
+            assertArrayEquals(new Class<?>[]{long.class}, dispatcher.valueTypes());
+
+            final Object meter = loader.loadClass("org.example.Meter").getConstructor().newInstance();
+            final ObserverManager mgr = new ObserverManager();
+            mgr.addObserver(meter);
+            mgr.fireEvent("hello");
+            mgr.fireLong(3);
+
+            assertEquals(Arrays.asList("observe hello", "count 3"), seen(meter));
+        }
+
+        final String config = new String(Files.readAllBytes(new File(classes, ObserverProcessor.REFLECT_CONFIG).toPath()),
+                StandardCharsets.UTF_8);
+        assertTrue(config, config.contains("{\"name\": \"count\", \"parameterTypes\": [\"long\"]}"));
+    }
+
+    @Test
+    public void asyncValueFailsCompilation() throws Exception {
+        final List<String> errors = new ArrayList<>();
+        compile(errors, "org/example/Bad.java", "package org.example;\n" +
+                "import org.tomitribe.pixie.Observes;\n" +
+                "public class Bad {\n" +
+                "    public void observe(@Observes(async = true) final double value) {\n" +
+                "    }\n" +
+                "}\n");
+
+        assertEquals(1, errors.size());
+        assertTrue(errors.get(0), errors.get(0).startsWith("@Observes long and double methods cannot be async: observe(double)"));
+    }
+
+    @SuppressWarnings("unchecked")
+    private static List<String> seen(final Object listener) throws ReflectiveOperationException {
+        return (List<String>) listener.getClass().getField("seen").get(listener);
+    }
+
+    private File compile(final String path, final String source) throws IOException {
+        final List<String> errors = new ArrayList<>();
+        final File classes = compile(errors, path, source);
+        assertEquals(Collections.emptyList(), errors);
+        return classes;
+    }
+
+    private File compile(final List<String> errors, final String path, final String source) throws IOException {
+        final File sources = tmp.newFolder();
+        final File classes = tmp.newFolder();
+
+        final File file = new File(sources, path);
+        assertTrue(file.getParentFile().mkdirs());
+        Files.write(file.toPath(), source.getBytes(StandardCharsets.UTF_8));
+
+        final JavaCompiler compiler = ToolProvider.getSystemJavaCompiler();
+        final DiagnosticCollector<JavaFileObject> diagnostics = new DiagnosticCollector<>();
+
+        try (StandardJavaFileManager files = compiler.getStandardFileManager(diagnostics, null, StandardCharsets.UTF_8)) {
+            final JavaCompiler.CompilationTask task = compiler.getTask(null, files, diagnostics,
+                    Arrays.asList("-d", classes.getAbsolutePath(), "-classpath", System.getProperty("java.class.path")),
+                    null, files.getJavaFileObjects(file));
+            task.setProcessors(Collections.singletonList(new ObserverProcessor()));
+            task.call();
+        }
+
+        for (final Diagnostic<? extends JavaFileObject> diagnostic : diagnostics.getDiagnostics()) {
+            if (diagnostic.getKind() == Diagnostic.Kind.ERROR) errors.add(diagnostic.getMessage(null));
+        }
+        return classes;
+    }
+}
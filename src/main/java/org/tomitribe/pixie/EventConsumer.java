@@ -0,0 +1,38 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.tomitribe.pixie;
+
+import java.util.function.Consumer;
+
+/**
+ * The Consumer Pixie injects for an @Event parameter.  Declare the parameter
+ * as an EventConsumer instead of a plain Consumer to fire events in bulk:
+ *
+ * <pre>
+ * public Importer(@Event final EventConsumer&lt;OrderPlaced&gt; orders) {
+ * </pre>
+ *
+ * Each event in a batch still gets its own Before, Invoke and After phases,
+ * exactly as if it had been passed to accept, and events are delivered in
+ * iteration order.  What a batch saves is the per-event lookup of the
+ * observers for each event type.
+ */
+public interface EventConsumer<E> extends Consumer<E> {
+
+    default void acceptAll(final Iterable<? extends E> events) {
+        for (final E event : events) {
+            accept(event);
+        }
+    }
+}
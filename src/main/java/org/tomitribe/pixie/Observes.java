@@ -27,4 +27,30 @@ import static java.lang.annotation.RetentionPolicy.RUNTIME;
 @Retention(RUNTIME)
 @Documented
 public @interface Observes {
+
+    /**
+     * Deliver the event on the System's executor rather than on the thread
+     * that fired it.  The firing thread does not wait for an asynchronous
+     * observer, and a failure is still reported as an ObserverFailed event.
+     */
+    boolean async() default false;
+
+    /**
+     * How many events an asynchronous observer may have waiting before its
+     * overflow policy applies.  Ignored unless async is true.
+     */
+    int queue() default 1024;
+
+    /**
+     * What to do with an event for an asynchronous observer whose queue is
+     * full.  Ignored unless async is true.
+     */
+    Overflow overflow() default Overflow.BLOCK;
+
+    /**
+     * Call this observer only for events whose routing key, as given by the
+     * function registered with System.keyBy, equals this one.  Empty, the
+     * default, means every event, unless the observer was added with a key.
+     */
+    String key() default "";
 }
\ No newline at end of file
@@ -0,0 +1,41 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.tomitribe.pixie;
+
+/**
+ * What an asynchronous observer's mailbox does with a delivery when it is
+ * already full.
+ */
+public enum Overflow {
+
+    /**
+     * The firing thread waits until there is room.
+     */
+    BLOCK,
+
+    /**
+     * The oldest queued event is discarded to make room.
+     */
+    DROP_OLDEST,
+
+    /**
+     * The new event is discarded.
+     */
+    DROP_NEWEST,
+
+    /**
+     * The firing thread calls the observer itself, as if it were synchronous.
+     */
+    CALLER_RUNS
+}
@@ -38,7 +38,11 @@ import org.tomitribe.pixie.comp.UnknownPropertyException;
 import org.tomitribe.pixie.event.ComponentAdded;
 import org.tomitribe.pixie.event.PixieClose;
 import org.tomitribe.pixie.event.PixieLoad;
+import org.tomitribe.pixie.observer.DispatchMetrics;
+import org.tomitribe.pixie.observer.EventRing;
+import org.tomitribe.pixie.observer.MailboxStatus;
 import org.tomitribe.pixie.observer.ObserverManager;
+import org.tomitribe.util.Duration;
 import org.tomitribe.util.Join;
 import org.tomitribe.util.SuperProperties;
 import org.tomitribe.util.editor.Converter;
@@ -70,10 +74,19 @@ import java.util.Optional;
 import java.util.Properties;
 import java.util.Queue;
 import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.BinaryOperator;
 import java.util.function.Consumer;
+import java.util.function.DoubleConsumer;
+import java.util.function.Function;
+import java.util.function.LongConsumer;
 import java.util.function.Predicate;
 import java.util.function.Supplier;
 import java.util.logging.Logger;
@@ -95,10 +108,53 @@ public class System implements Closeable {
 
     protected final List<Instance> objects = new CopyOnWriteArrayList<>();
 
+    /**
+     * The pixie.executor component while it is still waiting to be built
+     */
+    private volatile String pendingExecutor;
+
     protected final ObserverManager observerManager = new ObserverManager();
 
     protected static final Logger LOGGER = Logger.getLogger(System.class.getName());
 
+    /**
+     * Names the Executor component used for asynchronous event delivery, either
+     * as a reference to another component (pixie.executor = @workers) or as a
+     * declaration of its own (pixie.executor = new://org.example.Workers).
+     */
+    public static final String EXECUTOR = "pixie.executor";
+
+    /**
+     * Names an Executor used to construct components whose dependencies are
+     * already built concurrently, in the same two forms as pixie.executor.  When
+     * absent, components are constructed one at a time on the loading thread.
+     */
+    public static final String CONSTRUCTION_EXECUTOR = "pixie.construction.executor";
+
+    /**
+     * How often an event type fired with no observers is logged again, as a
+     * duration such as "5 minutes" (a bare number is milliseconds).  By default
+     * each such type is logged once and only counted after that.
+     */
+    public static final String UNOBSERVED_LOG_INTERVAL = "pixie.unobserved.log.interval";
+
+    /**
+     * Set to true to record dispatch metrics from the start, see getMetrics().
+     */
+    public static final String METRICS = "pixie.metrics";
+
+    /**
+     * How many single-threaded lanes partitioned events are dispatched on.
+     * Defaults to the number of processors.
+     */
+    public static final String LANES = "pixie.lanes";
+
+    /**
+     * How many events each partition lane may queue before fireEvent waits for
+     * room.  Defaults to 1024.
+     */
+    public static final String LANE_QUEUE = "pixie.lanes.queue";
+
     public System() {
         this(new Properties(), false);
     }
@@ -129,6 +185,12 @@ public class System implements Closeable {
         // Convert the properties to Map<String,String>
         parameters.putAll(toMap(properties));
 
+        // Components may fire events as they are built, so configure dispatch first
+        configureLanes();
+        configureExecutor();
+        configureUnobservedLogInterval();
+        configureMetrics();
+
         // Get the things that were explicitly declared in the configuration
         final List<Declaration> declarations = toMap(properties).entrySet().stream()
                 .filter(entry -> entry.getValue().startsWith("new://"))
@@ -138,6 +200,13 @@ public class System implements Closeable {
 
         build(declarations);
 
+        // An executor that was never built is reported as missing
+        if (pendingExecutor != null) {
+            final String name = pendingExecutor;
+            pendingExecutor = null;
+            observerManager.setExecutor(get(Executor.class, name, false));
+        }
+
         // Did the user specify any properties that were not used?
         if (warnOnUnusedProperties) {
             parameters.entrySet().stream()
@@ -153,6 +222,75 @@ public class System implements Closeable {
         observerManager.fireEvent(new PixieLoad(properties));
     }
 
+    private void configureExecutor() {
+        final Map.Entry<String, String> property = findProperty(EXECUTOR);
+        if (property == null) return;
+
+        // An executor declared in this load is applied by addInstance the moment it is built
+        final String name = referencedName(property);
+        if (objects.stream().anyMatch(instance -> name.equalsIgnoreCase(instance.getName()))) {
+            observerManager.setExecutor(get(Executor.class, name, false));
+        } else {
+            pendingExecutor = name;
+        }
+    }
+
+    private void configureUnobservedLogInterval() {
+        final Map.Entry<String, String> property = findProperty(UNOBSERVED_LOG_INTERVAL);
+        if (property == null) return;
+
+        final Duration interval = new Duration(property.getValue(), TimeUnit.MILLISECONDS);
+        observerManager.setUnobservedLogInterval(interval.getTime(), interval.getUnit());
+    }
+
+    private void configureLanes() {
+        final Map.Entry<String, String> lanes = findProperty(LANES);
+        final Map.Entry<String, String> queue = findProperty(LANE_QUEUE);
+        if (lanes == null && queue == null) return;
+
+        final int count = lanes != null ? atLeastOne(lanes) : Runtime.getRuntime().availableProcessors();
+        final int capacity = queue != null ? atLeastOne(queue) : 1024;
+        observerManager.setLanes(count, capacity);
+    }
+
+    private static int atLeastOne(final Map.Entry<String, String> property) {
+        final String value = property.getValue().trim();
+        try {
+            final int number = Integer.parseInt(value);
+            if (number >= 1) return number;
+        } catch (final NumberFormatException e) {
+            // reported below, along with values that are too small
+        }
+        throw new IllegalArgumentException(String.format("Property '%s' must be a whole number of at least 1: %s",
+                property.getKey(), property.getValue()));
+    }
+
+    private void configureMetrics() {
+        final Map.Entry<String, String> property = findProperty(METRICS);
+        if (property == null) return;
+
+        observerManager.setMetricsEnabled(Boolean.parseBoolean(property.getValue().trim()));
+    }
+
+    private Map.Entry<String, String> findProperty(final String name) {
+        final Map.Entry<String, String> property = parameters.entrySet().stream()
+                .filter(entry -> name.equalsIgnoreCase(entry.getKey()))
+                .findFirst()
+                .orElse(null);
+
+        if (property != null) usedParameters.put(property.getKey(), property.getValue());
+        return property;
+    }
+
+    /**
+     * "key = @name" refers to the component called name, "key = new://..." declares
+     * a component called key.
+     */
+    private static String referencedName(final Map.Entry<String, String> property) {
+        final String value = property.getValue();
+        return value.startsWith("@") ? value.substring(1) : property.getKey();
+    }
+
     private void build(final List<Declaration> declarations) {
         if (declarations.size() == 0) return;
 
@@ -162,9 +300,75 @@ public class System implements Closeable {
 
         final List<Declaration> sorted = sortDependencies(declarations);
 
-        for (final Declaration declaration : sorted) {
+        final Map.Entry<String, String> property = findProperty(CONSTRUCTION_EXECUTOR);
+
+        if (property == null) {
+            for (final Declaration declaration : sorted) {
+                addInstance(declaration.buildInstance());
+            }
+            return;
+        }
+
+        // The executor may itself be declared here; build everything up to it the usual way
+        final String name = referencedName(property);
+        int built = 0;
+        for (int i = 0; i < sorted.size(); i++) {
+            if (name.equalsIgnoreCase(sorted.get(i).getName())) {
+                built = i + 1;
+                break;
+            }
+        }
+
+        for (final Declaration declaration : sorted.subList(0, built)) {
             addInstance(declaration.buildInstance());
         }
+
+        buildConcurrently(sorted.subList(built, sorted.size()), get(Executor.class, name, false));
+    }
+
+    /**
+     * Components are grouped in waves: a component lands one wave after the last of the
+     * declarations it refers to. Each wave is constructed concurrently and waited for in full,
+     * then its instances are added on this thread in declaration order, so by-type resolution and the
+     * ComponentAdded events see exactly the order a sequential build would give.
+     */
+    private void buildConcurrently(final List<Declaration> sorted, final Executor executor) {
+        final Map<String, Integer> waves = new HashMap<>();
+        final List<List<Declaration>> grouped = new ArrayList<>();
+
+        for (final Declaration declaration : sorted) {
+            int wave = 0;
+            for (final Object id : declaration.getDeclarationReferences()) {
+                final Integer dependency = waves.get(id);
+                if (dependency != null) wave = Math.max(wave, dependency + 1);
+            }
+
+            waves.put(declaration.getReferenceId(), wave);
+            while (grouped.size() <= wave) {
+                grouped.add(new ArrayList<>());
+            }
+            grouped.get(wave).add(declaration);
+        }
+
+        for (final List<Declaration> wave : grouped) {
+            final List<CompletableFuture<Instance>> instances = wave.stream()
+                    .map(declaration -> CompletableFuture.supplyAsync(declaration::buildInstance, executor))
+                    .collect(Collectors.toList());
+
+            // let the whole wave finish before anything is added or thrown, so no component
+            // is still being built behind a failure
+            try {
+                CompletableFuture.allOf(instances.toArray(new CompletableFuture[0])).join();
+            } catch (final CompletionException e) {
+                if (e.getCause() instanceof RuntimeException) throw (RuntimeException) e.getCause();
+                if (e.getCause() instanceof Error) throw (Error) e.getCause();
+                throw e;
+            }
+
+            for (final CompletableFuture<Instance> instance : instances) {
+                addInstance(instance.join());
+            }
+        }
     }
 
     private void resolveReferences(final Declaration declaration, final List<Declaration> declarations) {
@@ -399,6 +603,7 @@ public class System implements Closeable {
     public void close() {
         // todo: should we do some sort of cleanup?
         observerManager.fireEvent(new PixieClose());
+        observerManager.shutdown();
     }
 
     public static class Instance<T> {
@@ -449,6 +654,11 @@ public class System implements Closeable {
         this.objects.add(e);
 
         final T object = e.getObject();
+        if (object instanceof Executor && pendingExecutor != null && pendingExecutor.equalsIgnoreCase(e.getName())) {
+            pendingExecutor = null;
+            observerManager.setExecutor((Executor) object);
+        }
+
         final Class<T> type = (Class<T>) object.getClass();
         this.fireEvent(new ComponentAdded<>(type, object));
 
@@ -555,14 +765,154 @@ public class System implements Closeable {
         return observerManager.fireEvent(event);
     }
 
+    public <E> void fireEvents(final Iterable<E> events) {
+        observerManager.fireEvents(events);
+    }
+
+    public <E> CompletableFuture<E> fireEventAsync(final E event) {
+        return observerManager.fireEventAsync(event);
+    }
+
+    /**
+     * Delivers the value, unboxed, to every @Observes long method.
+     */
+    public void fireLong(final long value) {
+        observerManager.fireLong(value);
+    }
+
+    /**
+     * Delivers the value, unboxed, to every @Observes double method.
+     */
+    public void fireDouble(final double value) {
+        observerManager.fireDouble(value);
+    }
+
+    /**
+     * Delivers events of this type on ordered lanes partitioned by the given
+     * key: events with equal keys are observed one at a time, in the order they
+     * were fired, and different keys in parallel.  See pixie.lanes.
+     */
+    public <E> void partition(final Class<E> type, final Function<? super E, ?> key) {
+        observerManager.partition(type, key);
+    }
+
+    /**
+     * Gives events of this type a routing key, so that observers added with a
+     * key, or declaring @Observes(key = ...), see only the events matching it.
+     */
+    public <E> void keyBy(final Class<E> type, final Function<? super E, ?> key) {
+        observerManager.keyBy(type, key);
+    }
+
+    /**
+     * Delivers each event of this type to its observers in parallel on the
+     * common ForkJoinPool, returning once they have all finished.
+     */
+    public void parallel(final Class<?> type) {
+        observerManager.parallel(type);
+    }
+
+    /**
+     * Delivers each event of this type to its observers in parallel on the
+     * given pool, returning once they have all finished.
+     */
+    public void parallel(final Class<?> type, final ForkJoinPool pool) {
+        observerManager.parallel(type, pool);
+    }
+
+    /**
+     * Delivers at most one event of this type per window: the last one fired
+     * while the window was open.
+     */
+    public <E> void coalesce(final Class<E> type, final long window, final TimeUnit unit) {
+        observerManager.coalesce(type, window, unit);
+    }
+
+    /**
+     * Delivers at most one event of this type per window, merging the events
+     * fired while it was open with the combiner.
+     */
+    public <E> void coalesce(final Class<E> type, final long window, final TimeUnit unit,
+                             final BinaryOperator<E> combiner) {
+        observerManager.coalesce(type, window, unit, combiner);
+    }
+
+    /**
+     * A ring of preallocated events that any number of threads may publish
+     * to, consumed by each current observer of the type on a thread of its own.
+     */
+    public <E> EventRing<E> ring(final Class<E> type, final Supplier<? extends E> factory, final int size) {
+        return observerManager.ring(type, factory, size);
+    }
+
+    /**
+     * A ring of preallocated events with the given producer mode and wait
+     * strategy.  See EventRing.
+     */
+    public <E> EventRing<E> ring(final Class<E> type, final Supplier<? extends E> factory, final int size,
+                                 final EventRing.Producers producers, final EventRing.Wait wait) {
+        return observerManager.ring(type, factory, size, producers, wait);
+    }
+
     public <E> Consumer<E> consumersOf(final Class<E> eventClass) {
         return observerManager.consumersOf(eventClass);
     }
 
+    /**
+     * Records how often each event type is fired and, per observer method, how
+     * often it is called, how often it fails and how long it takes.  Off by
+     * default, and free when off.
+     */
+    public void setMetricsEnabled(final boolean enabled) {
+        observerManager.setMetricsEnabled(enabled);
+    }
+
+    /**
+     * A snapshot of the dispatch metrics, or null if metrics are not enabled.
+     */
+    public DispatchMetrics getMetrics() {
+        return observerManager.getMetrics();
+    }
+
+    /**
+     * The queue depth and drop count of every @Observes(async = true) observer method.
+     */
+    public List<MailboxStatus> getMailboxes() {
+        return observerManager.getMailboxes();
+    }
+
+    /**
+     * Event types fired with no observers, and how many times each was fired.
+     */
+    public Map<Class<?>, Long> getUnobservedEvents() {
+        return observerManager.getUnobservedEvents();
+    }
+
     public boolean addObserver(final Object observer) {
         return observerManager.addObserver(observer);
     }
 
+    /**
+     * Adds the observer so that it sees only events whose routing key, see
+     * keyBy, equals the given one.
+     */
+    public boolean addObserver(final Object observer, final Object key) {
+        return observerManager.addObserver(observer, key);
+    }
+
+    /**
+     * Adds the observer without keeping it alive.  Once the observer is
+     * garbage collected it stops receiving events and is dropped, with no
+     * need to call removeObserver.
+     */
+    public boolean addWeakObserver(final Object observer) {
+        return observerManager.addWeakObserver(observer);
+    }
+
+    public boolean addWeakObserver(final Object observer, final Object key) {
+        return observerManager.addWeakObserver(observer, key);
+    }
+
     public boolean removeObserver(final Object observer) {
         return observerManager.removeObserver(observer);
     }
@@ -994,6 +1344,9 @@ public class System implements Closeable {
 
             @Override
             public Object resolveValue() {
+                if (LongConsumer.class.equals(parameter.getType())) return observerManager.longConsumer();
+                if (DoubleConsumer.class.equals(parameter.getType())) return observerManager.doubleConsumer();
+
                 final Class<?> eventType = EventReferences.eventType(parameter);
                 return consumersOf(eventType);
             }
@@ -1103,7 +1456,12 @@ public class System implements Closeable {
         }
 
         private Instance<T> buildInstance() {
-            return new Instance<T>(getReferenceId(), build());
+            final Object flight = FlightEvents.beginConstruction();
+            try {
+                return new Instance<T>(getReferenceId(), build());
+            } finally {
+                FlightEvents.endConstruction(flight, this);
+            }
         }
 
         public T getInstance() {
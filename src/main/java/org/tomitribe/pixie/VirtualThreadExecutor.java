@@ -0,0 +1,52 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.tomitribe.pixie;
+
+import java.util.concurrent.Executor;
+
+/**
+ * Runs each task on a virtual thread of its own.  Declare it as the executor
+ * for asynchronous observers or for parallel component construction:
+ *
+ * <pre>
+ * pixie.executor = new://org.tomitribe.pixie.VirtualThreadExecutor
+ * pixie.construction.executor = @pixie.executor
+ * </pre>
+ *
+ * Virtual threads need Java 21.  On older JVMs this executor runs tasks on the
+ * common ForkJoinPool instead, so the same configuration works everywhere;
+ * isSupported() tells which one is in use.
+ */
+public class VirtualThreadExecutor implements Executor {
+
+    private final Executor executor;
+
+    public VirtualThreadExecutor() {
+        this.executor = VirtualThreads.newExecutor();
+    }
+
+    public static boolean isSupported() {
+        return VirtualThreads.isAvailable();
+    }
+
+    @Override
+    public void execute(final Runnable command) {
+        executor.execute(command);
+    }
+
+    @Override
+    public String toString() {
+        return "VirtualThreadExecutor{virtual=" + isSupported() + "}";
+    }
+}
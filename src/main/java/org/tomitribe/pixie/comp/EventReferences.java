@@ -13,6 +13,8 @@
  */
 package org.tomitribe.pixie.comp;
 
+import org.tomitribe.pixie.EventConsumer;
+
 import java.lang.reflect.Parameter;
 import java.lang.reflect.ParameterizedType;
 import java.lang.reflect.Type;
@@ -26,7 +28,7 @@ public class EventReferences {
     }
 
     public static Class eventType(final Parameter parameter) {
-        if (!Consumer.class.equals(parameter.getType())) {
+        if (!Consumer.class.equals(parameter.getType()) && !EventConsumer.class.equals(parameter.getType())) {
             throw new InvalidEventParameterTypeException(parameter);
         }
 
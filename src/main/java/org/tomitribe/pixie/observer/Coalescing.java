@@ -0,0 +1,232 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.tomitribe.pixie.observer;
+
+import java.util.Arrays;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.function.BinaryOperator;
+import java.util.function.Function;
+import java.util.logging.Level;
+
+/**
+ * Which event types are coalesced, and the window each one's events are gathered in. The first
+ * event of a type opens a window; events fired while it is open are merged into it with the
+ * combiner, and when it closes the one merged event is delivered. Like partitions, a type is
+ * coalesced if it or any supertype was registered, the most specific registration winning, and
+ * the resolution per event class is cached in an array indexed by EventTypes id.
+ *
+ * Windows are closed by a single daemon timer thread, which delivers the merged event itself,
+ * or hands it to its lane if the type is also partitioned; the window counts as delivered once
+ * the lane has dispatched it. The window is fixed from its first event rather than restarted by every event, so a steady
+ * stream is still delivered once per window instead of never.
+ */
+class Coalescing {
+
+    private final Window none = new Window(0, null);
+
+    private final Map<Class<?>, Window> windows = new ConcurrentHashMap<>();
+
+    private volatile Window[] resolved = new Window[0];
+
+    private final Function<Object, CompletableFuture<?>> deliver;
+    private volatile ScheduledExecutorService timer;
+    private volatile boolean closed;
+
+    Coalescing(final Function<Object, CompletableFuture<?>> deliver) {
+        this.deliver = deliver;
+    }
+
+    @SuppressWarnings("unchecked")
+    public synchronized void add(final Class<?> type, final long nanos, final BinaryOperator<?> combiner) {
+        windows.put(type, new Window(nanos, (BinaryOperator<Object>) combiner));
+        resolved = new Window[0];
+    }
+
+    /**
+     * Is this event class coalesced?
+     */
+    public boolean coalesces(final Class<?> type) {
+        return get(type) != null;
+    }
+
+    /**
+     * Adds the event to its type's open window, opening one if there is none. Returns false,
+     * doing nothing, if the event's type is not coalesced.
+     */
+    public boolean offer(final Object event) {
+        final Window window = get(event.getClass());
+        if (window == null) return false;
+
+        window.add(event, false);
+        return true;
+    }
+
+    /**
+     * As offer, but returns a future completed once the window the event joined has been
+     * delivered, or null if the event's type is not coalesced.
+     */
+    public CompletableFuture<Void> offerAsync(final Object event) {
+        final Window window = get(event.getClass());
+        if (window == null) return null;
+
+        return window.add(event, true);
+    }
+
+    private Window get(final Class<?> type) {
+        if (closed) return null;
+
+        final int id = EventTypes.id(type);
+
+        final Window[] resolved = this.resolved;
+        final Window window = id < resolved.length ? resolved[id] : null;
+
+        if (window == null) return resolve(id, type);
+        return window == none ? null : window;
+    }
+
+    private synchronized Window resolve(final int id, final Class<?> type) {
+        final Class<?> match = Resolver.bestMatch(type, windows.keySet());
+        final Window window = match == null ? none : windows.get(match);
+
+        final Window[] resolved = Arrays.copyOf(this.resolved, Math.max(this.resolved.length, id + 1));
+        resolved[id] = window;
+        this.resolved = resolved;
+
+        return window == none ? null : window;
+    }
+
+    private ScheduledExecutorService timer() {
+        final ScheduledExecutorService timer = this.timer;
+        if (timer != null) return timer;
+
+        synchronized (this) {
+            // shutdown has already stopped the timer, or will find this one to stop
+            if (closed) throw new RejectedExecutionException("Coalescing has been shut down");
+
+            if (this.timer == null) {
+                this.timer = new ScheduledThreadPoolExecutor(1, runnable -> {
+                    final Thread thread = new Thread(runnable, "pixie-coalesce");
+                    thread.setDaemon(true);
+                    return thread;
+                });
+            }
+            return this.timer;
+        }
+    }
+
+    /**
+     * Delivers whatever the open windows hold now, rather than when they would have closed,
+     * and stops the timer. Events fired after this are delivered immediately.
+     */
+    public void shutdown() {
+        final ScheduledExecutorService timer;
+        synchronized (this) {
+            closed = true;
+            timer = this.timer;
+        }
+
+        if (timer != null) timer.shutdownNow();
+
+        for (final Window window : windows.values()) {
+            window.flush();
+        }
+    }
+
+    private final class Window {
+        private final long nanos;
+        private final BinaryOperator<Object> combiner;
+
+        private Object pending;
+        private CompletableFuture<Void> delivered;
+
+        private Window(final long nanos, final BinaryOperator<Object> combiner) {
+            this.nanos = nanos;
+            this.combiner = combiner;
+        }
+
+        private CompletableFuture<Void> add(final Object event, final boolean await) {
+            final CompletableFuture<Void> future;
+            synchronized (this) {
+                if (pending == null) {
+                    pending = event;
+                    schedule();
+                } else {
+                    pending = combiner.apply(pending, event);
+                }
+
+                if (await && delivered == null) delivered = new CompletableFuture<>();
+                future = await ? delivered : null;
+            }
+
+            // shut down while the event was being added: no timer will close this window, and
+            // shutdown may already have flushed it, so close it here
+            if (closed) flush();
+            return future;
+        }
+
+        private void schedule() {
+            try {
+                timer().schedule(this::flush, nanos, TimeUnit.NANOSECONDS);
+            } catch (final RejectedExecutionException e) {
+                // shutdown got there first; add sees closed and flushes the window itself
+            }
+        }
+
+        private void flush() {
+            final Object event;
+            final CompletableFuture<Void> delivered;
+            synchronized (this) {
+                event = pending;
+                delivered = this.delivered;
+                pending = null;
+                this.delivered = null;
+            }
+
+            if (event == null) return;
+
+            final CompletableFuture<?> dispatched;
+            try {
+                dispatched = deliver.apply(event);
+            } catch (final Throwable t) {
+                failed(event, delivered, t);
+                return;
+            }
+
+            dispatched.whenComplete((done, t) -> {
+                if (t != null) {
+                    failed(event, delivered, t);
+                } else if (delivered != null) {
+                    delivered.complete(null);
+                }
+            });
+        }
+
+        /**
+         * Observer failures are reported by dispatch itself; this is anything else.
+         */
+        private void failed(final Object event, final CompletableFuture<Void> delivered, final Throwable t) {
+            if (delivered != null) {
+                delivered.completeExceptionally(t);
+            } else {
+                ObserverManager.logger().log(Level.SEVERE, "Coalesced delivery of " + event + " failed", t);
+            }
+        }
+    }
+}
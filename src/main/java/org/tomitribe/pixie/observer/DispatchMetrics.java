@@ -0,0 +1,176 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.tomitribe.pixie.observer;
+
+import java.lang.reflect.Method;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * A point-in-time copy of the dispatch metrics an ObserverManager collects while metrics are
+ * enabled: how often each event type was fired, and for each registered observer method how
+ * often it was called, how often it failed and how long it took.
+ *
+ * Counters are read one after another while events may still be firing, so the figures are
+ * each exact but not necessarily consistent with one another.
+ */
+public class DispatchMetrics {
+
+    private final Map<Class<?>, Long> fires;
+    private final List<ObserverMetrics> observers;
+
+    public DispatchMetrics(final Map<Class<?>, Long> fires, final List<ObserverMetrics> observers) {
+        this.fires = Collections.unmodifiableMap(fires);
+        this.observers = Collections.unmodifiableList(observers);
+    }
+
+    /**
+     * Fires per event type, for event types that had at least one observer.
+     */
+    public Map<Class<?>, Long> getFires() {
+        return fires;
+    }
+
+    public List<ObserverMetrics> getObservers() {
+        return observers;
+    }
+
+    @Override
+    public String toString() {
+        return "DispatchMetrics{" +
+                "fires=" + fires +
+                ", observers=" + observers +
+                '}';
+    }
+
+    public static class ObserverMetrics {
+        private final Object observer;
+        private final Method method;
+        private final long failures;
+        private final Histogram latency;
+
+        public ObserverMetrics(final Object observer, final Method method, final long failures, final Histogram latency) {
+            this.observer = observer;
+            this.method = method;
+            this.failures = failures;
+            this.latency = latency;
+        }
+
+        public Object getObserver() {
+            return observer;
+        }
+
+        public Method getMethod() {
+            return method;
+        }
+
+        public long getDeliveries() {
+            return latency.getCount();
+        }
+
+        public long getFailures() {
+            return failures;
+        }
+
+        public Histogram getLatency() {
+            return latency;
+        }
+
+        @Override
+        public String toString() {
+            return "ObserverMetrics{" +
+                    "method=" + method +
+                    ", deliveries=" + getDeliveries() +
+                    ", failures=" + failures +
+                    ", latency=" + latency +
+                    '}';
+        }
+    }
+
+    /**
+     * Latencies in nanoseconds, in power-of-two buckets: bucket i counts calls that took from
+     * 2^i up to 2^(i+1) nanoseconds, with bucket 0 also taking calls under one nanosecond.
+     * Percentiles are therefore exact to within a factor of two, which is plenty to tell a 200ns
+     * observer from a 20ms one.
+     */
+    public static class Histogram {
+        private final long[] buckets;
+        private final long count;
+        private final long total;
+
+        public Histogram(final long[] buckets, final long total) {
+            this.buckets = buckets.clone();
+            this.total = total;
+
+            long count = 0;
+            for (final long bucket : buckets) {
+                count += bucket;
+            }
+            this.count = count;
+        }
+
+        public long getCount() {
+            return count;
+        }
+
+        /**
+         * Sum of all recorded latencies, in nanoseconds.
+         */
+        public long getTotal() {
+            return total;
+        }
+
+        public long getMean() {
+            return count == 0 ? 0 : total / count;
+        }
+
+        public long[] getBuckets() {
+            return buckets.clone();
+        }
+
+        /**
+         * The upper bound, in nanoseconds, of the bucket holding the given percentile (0 to 100).
+         */
+        public long getPercentile(final double percentile) {
+            if (percentile < 0 || percentile > 100) {
+                throw new IllegalArgumentException("percentile must be between 0 and 100: " + percentile);
+            }
+            if (count == 0) return 0;
+
+            final long rank = Math.max(1, (long) Math.ceil(count * percentile / 100));
+
+            long seen = 0;
+            for (int i = 0; i < buckets.length; i++) {
+                seen += buckets[i];
+                if (seen >= rank) return upperBound(i);
+            }
+            return upperBound(buckets.length - 1);
+        }
+
+        private static long upperBound(final int bucket) {
+            return bucket >= 62 ? Long.MAX_VALUE : (2L << bucket) - 1;
+        }
+
+        @Override
+        public String toString() {
+            return "Histogram{" +
+                    "count=" + count +
+                    ", mean=" + getMean() +
+                    ", p50=" + getPercentile(50) +
+                    ", p99=" + getPercentile(99) +
+                    '}';
+        }
+    }
+}
@@ -0,0 +1,397 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.tomitribe.pixie.observer;
+
+import java.util.List;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.LockSupport;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Consumer;
+import java.util.function.ObjLongConsumer;
+import java.util.function.Supplier;
+import java.util.logging.Level;
+
+/**
+ * A fixed ring of preallocated, mutable events of one type, for event rates fireEvent cannot
+ * sustain. A producer claims the next slot with next(), fills in the event it finds there with
+ * get(), and publishes it; nothing is allocated. Each observer of the type is a consumer stage
+ * on its own thread, following the producers with its own sequence and calling its @Observes
+ * method for every published slot, in order, a whole batch at a time. A producer that laps the
+ * slowest stage waits for it, so no event is overwritten before every stage has seen it.
+ *
+ * The stages are the observers registered when the ring is created. Slots are reused, so an
+ * observer must not keep the event, or anything it reads from it, past its method returning.
+ *
+ * With Producers.SINGLE only one thread may publish, and claiming a slot is a plain increment.
+ * Producers.MULTI claims with an atomic increment and marks each slot available separately, so
+ * stages only see the unbroken run of slots that have all been published.
+ */
+public final class EventRing<E> implements AutoCloseable {
+
+    public enum Producers {
+        SINGLE,
+        MULTI
+    }
+
+    /**
+     * How a stage waits for events, and a producer for room. BUSY_SPIN has the lowest latency
+     * and burns a core per stage; YIELDING spins briefly then yields; BLOCKING parks the stage
+     * until a producer signals it, at the cost of a lock on publish while any stage is parked.
+     */
+    public enum Wait {
+        BUSY_SPIN,
+        YIELDING,
+        BLOCKING
+    }
+
+    private static final int SPINS = 100;
+
+    private final Class<E> type;
+    private final Object[] slots;
+    private final int mask;
+    private final int shift;
+    private final Producers producers;
+    private final Wait wait;
+
+    /**
+     * Producers.SINGLE: the last published sequence. Producers.MULTI: the last claimed one.
+     */
+    private final Sequence cursor = new Sequence();
+
+    /**
+     * Producers.MULTI: for each slot, which lap of the ring last published it.
+     */
+    private final AtomicIntegerArray available;
+
+    /**
+     * Producers.SINGLE: the last claimed sequence, touched only by the producer thread.
+     */
+    private long claimed = -1;
+
+    /**
+     * The slowest stage's sequence, as last seen by a producer.
+     */
+    private volatile long gate = -1;
+
+    private final Stage[] stages;
+
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Condition published = lock.newCondition();
+    private volatile int parked;
+
+    private volatile boolean running = true;
+
+    /** Told once the ring is closed, so whoever created it can let go of it. */
+    private final Consumer<? super EventRing<E>> closed;
+
+    @SuppressWarnings("unchecked")
+    EventRing(final Class<E> type, final Supplier<? extends E> factory, final int size, final Producers producers,
+              final Wait wait, final List<ObserverManager.Invocation> consumers,
+              final Consumer<? super EventRing<E>> closed) {
+        if (Integer.bitCount(size) != 1) throw new IllegalArgumentException("ring size must be a power of two: " + size);
+
+        this.type = type;
+        this.slots = new Object[size];
+        this.mask = size - 1;
+        this.shift = Integer.numberOfTrailingZeros(size);
+        this.producers = producers;
+        this.wait = wait;
+        this.closed = closed;
+
+        for (int i = 0; i < size; i++) {
+            final E event = factory.get();
+            if (event == null) throw new IllegalArgumentException("factory returned null");
+            slots[i] = event;
+        }
+
+        if (producers == Producers.MULTI) {
+            this.available = new AtomicIntegerArray(size);
+            for (int i = 0; i < size; i++) {
+                available.set(i, -1);
+            }
+        } else {
+            this.available = null;
+        }
+
+        this.stages = (Stage[]) new EventRing.Stage[consumers.size()];
+        for (int i = 0; i < stages.length; i++) {
+            stages[i] = new Stage(i, consumers.get(i));
+        }
+        for (final Stage stage : stages) {
+            stage.start();
+        }
+    }
+
+    public Class<E> getType() {
+        return type;
+    }
+
+    public int getSize() {
+        return slots.length;
+    }
+
+    /**
+     * How many observers consume the ring, each on its own thread.
+     */
+    public int getStages() {
+        return stages.length;
+    }
+
+    /**
+     * Claims the next slot, waiting while it still holds an event some stage has not seen. The
+     * slot must be published once filled in, or the stages stop there. Once the ring is closed
+     * there is no one left to consume the slot, so it refuses with an IllegalStateException.
+     */
+    public long next() {
+        if (!running) throw closed();
+
+        final long sequence = producers == Producers.SINGLE ? ++claimed : cursor.incrementAndGet();
+
+        final long wrap = sequence - slots.length;
+        if (wrap > gate) {
+            int spins = 0;
+            long slowest;
+            while (wrap > (slowest = slowest(sequence))) {
+                if (!running) throw closed();
+                spins = idle(spins, false);
+            }
+            gate = slowest;
+        }
+
+        return sequence;
+    }
+
+    private IllegalStateException closed() {
+        return new IllegalStateException("EventRing of " + type.getName() + " is closed");
+    }
+
+    /**
+     * The event in the slot for this sequence, to be filled in between next() and publish().
+     */
+    @SuppressWarnings("unchecked")
+    public E get(final long sequence) {
+        return (E) slots[(int) sequence & mask];
+    }
+
+    /**
+     * Makes the slot visible to the stages.
+     */
+    public void publish(final long sequence) {
+        if (wait != Wait.BLOCKING) {
+            if (producers == Producers.SINGLE) {
+                cursor.lazySet(sequence);
+            } else {
+                available.lazySet((int) sequence & mask, (int) (sequence >>> shift));
+            }
+            return;
+        }
+
+        // A full volatile write, so it cannot pass our read of parked: either we see the stage
+        // parking, or the stage sees this slot before it parks
+        if (producers == Producers.SINGLE) {
+            cursor.set(sequence);
+        } else {
+            available.set((int) sequence & mask, (int) (sequence >>> shift));
+        }
+
+        if (parked > 0) signal();
+    }
+
+    /**
+     * Claims, fills in and publishes one slot. The translator is given the slot's event and the
+     * value to copy into it; a lambda that captures nothing allocates nothing.
+     */
+    public void publish(final ObjLongConsumer<? super E> translator, final long value) {
+        final long sequence = next();
+        try {
+            translator.accept(get(sequence), value);
+        } finally {
+            publish(sequence);
+        }
+    }
+
+    /**
+     * Stops accepting events, lets every stage finish the events already published, and waits
+     * for the stage threads to end. The ObserverManager that created the ring forgets it, so
+     * its slots and stages can be collected.
+     */
+    @Override
+    public void close() {
+        if (!running) return;
+
+        running = false;
+        signal();
+        closed.accept(this);
+
+        for (final Stage stage : stages) {
+            if (stage == Thread.currentThread()) continue;
+            try {
+                stage.join();
+            } catch (final InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            }
+        }
+    }
+
+    /**
+     * The sequence of the slowest stage; with no stages, nothing holds a producer back.
+     */
+    private long slowest(final long sequence) {
+        long slowest = sequence;
+        for (final Stage stage : stages) {
+            slowest = Math.min(slowest, stage.sequence.get());
+        }
+        return slowest;
+    }
+
+    /**
+     * The highest sequence, from next onwards, up to which every slot has been published.
+     */
+    private long highestPublished(final long next) {
+        if (producers == Producers.SINGLE) return cursor.get();
+
+        final long claimed = cursor.get();
+        for (long sequence = next; sequence <= claimed; sequence++) {
+            if (available.get((int) sequence & mask) != (int) (sequence >>> shift)) return sequence - 1;
+        }
+        return claimed;
+    }
+
+    private void signal() {
+        lock.lock();
+        try {
+            published.signalAll();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Waits a little, by the ring's strategy, before the caller checks again. Producers never
+     * park on the lock: nothing signals them, so a blocking producer parks for a moment instead.
+     */
+    private int idle(final int spins, final boolean stage) {
+        switch (wait) {
+            case BUSY_SPIN:
+                return spins;
+            case YIELDING:
+                if (spins < SPINS) return spins + 1;
+                Thread.yield();
+                return spins;
+            default:
+                if (!stage) LockSupport.parkNanos(1000L);
+                return spins;
+        }
+    }
+
+    /**
+     * Parks a stage until a producer publishes past its sequence, or the ring closes.
+     */
+    private void block(final long next) {
+        lock.lock();
+        try {
+            parked++;
+            try {
+                while (running && highestPublished(next) < next) {
+                    published.await();
+                }
+            } finally {
+                parked--;
+            }
+        } catch (final InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private final class Stage extends Thread {
+        private final Sequence sequence = new Sequence();
+        private final ObserverManager.Invocation invocation;
+
+        private Stage(final int index, final ObserverManager.Invocation invocation) {
+            super("pixie-ring-" + type.getSimpleName() + "-" + index);
+            this.invocation = invocation;
+            setDaemon(true);
+        }
+
+        @Override
+        public void run() {
+            long next = sequence.get() + 1;
+
+            while (true) {
+                final long last = waitFor(next);
+                if (last < next) return;
+
+                for (long each = next; each <= last; each++) {
+                    try {
+                        invocation.invoke(slots[(int) each & mask]);
+                    } catch (final Throwable t) {
+                        // observer failures are reported by the invocation itself; this is anything else
+                        ObserverManager.logger().log(Level.SEVERE, getName() + " dispatch failed", t);
+                    }
+                }
+
+                // the whole batch is done with, so producers may reuse its slots
+                sequence.lazySet(last);
+                next = last + 1;
+            }
+        }
+
+        /**
+         * The last published sequence once it reaches next, or next - 1 if the ring closed and
+         * everything published has been consumed.
+         */
+        private long waitFor(final long next) {
+            int spins = 0;
+            while (true) {
+                final long last = highestPublished(next);
+                if (last >= next) return last;
+
+                if (!running) {
+                    final long remaining = highestPublished(next);
+                    return remaining >= next ? remaining : next - 1;
+                }
+
+                if (wait == Wait.BLOCKING) {
+                    block(next);
+                } else {
+                    spins = idle(spins, true);
+                }
+            }
+        }
+    }
+
+    /**
+     * A sequence padded out to its own cache line, so that producers and stages updating their
+     * sequences do not slow each other down through false sharing.
+     */
+    @SuppressWarnings("unused")
+    private static final class Sequence extends AtomicLong {
+        private long p1;
+        private long p2;
+        private long p3;
+        private long p4;
+        private long p5;
+        private long p6;
+        private long p7;
+
+        private Sequence() {
+            super(-1);
+        }
+    }
+}
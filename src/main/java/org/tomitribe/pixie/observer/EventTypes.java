@@ -0,0 +1,74 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.tomitribe.pixie.observer;
+
+import java.lang.ref.WeakReference;
+import java.util.Arrays;
+
+/**
+ * Hands out a small, dense integer for every event class, so dispatch tables can be plain arrays
+ * indexed by event type rather than maps keyed on Class.
+ *
+ * The id lives in a ClassValue, which is stored on the Class itself and goes away with it. The
+ * reverse lookup from id to Class holds only weak references, so neither direction keeps an
+ * event class - or the plugin class loader that defined it - reachable. Ids are never reused;
+ * a class that is unloaded simply leaves a hole.
+ */
+final class EventTypes {
+
+    private static final ClassValue<Integer> IDS = new ClassValue<Integer>() {
+        @Override
+        protected Integer computeValue(final Class<?> type) {
+            return register(type);
+        }
+    };
+
+    @SuppressWarnings("unchecked")
+    private static volatile WeakReference<Class<?>>[] types = new WeakReference[64];
+
+    private static int next;
+
+    private EventTypes() {
+    }
+
+    public static int id(final Class<?> type) {
+        return IDS.get(type);
+    }
+
+    /**
+     * The class that was given this id, or null if it has since been unloaded.
+     */
+    public static Class<?> type(final int id) {
+        final WeakReference<Class<?>>[] types = EventTypes.types;
+        if (id >= types.length) return null;
+
+        final WeakReference<Class<?>> reference = types[id];
+        return reference == null ? null : reference.get();
+    }
+
+    /**
+     * ClassValue may compute a value more than once under contention and keep only one; the ids
+     * that lose the race are wasted, which is harmless.
+     */
+    private static synchronized int register(final Class<?> type) {
+        final int id = next++;
+
+        WeakReference<Class<?>>[] types = EventTypes.types;
+        if (id >= types.length) types = Arrays.copyOf(types, types.length * 2);
+
+        types[id] = new WeakReference<>(type);
+        EventTypes.types = types;
+        return id;
+    }
+}
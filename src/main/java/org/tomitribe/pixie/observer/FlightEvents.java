@@ -0,0 +1,41 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.tomitribe.pixie.observer;
+
+import java.lang.reflect.Method;
+
+/**
+ * Java 8 has no JDK Flight Recorder API, so these hooks do nothing and the JIT compiles them
+ * away. On Java 11 and later this class is replaced by the one under META-INF/versions/11 of the
+ * multi-release jar, which records event dispatch and slow observers as JFR events.
+ */
+final class FlightEvents {
+
+    private FlightEvents() {
+    }
+
+    static Object beginFire() {
+        return null;
+    }
+
+    static void endFire(final Object fire, final Class<?> eventType, final ObserverManager.Invocation invocation) {
+    }
+
+    static Object beginObserver() {
+        return null;
+    }
+
+    static void endObserver(final Object observer, final Method method, final Class<?> eventType) {
+    }
+}
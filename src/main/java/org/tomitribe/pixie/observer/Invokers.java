@@ -0,0 +1,262 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.tomitribe.pixie.observer;
+
+import java.lang.invoke.CallSite;
+import java.lang.invoke.LambdaMetafactory;
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Binds an @Observes method once, when the observer is registered, to an Invoker that is then
+ * called for every delivery.
+ *
+ * The GENERATED strategy spins a small class through LambdaMetafactory whose single method is a
+ * plain invokevirtual of the observer method - no argument array, no access check, nothing the
+ * JIT cannot inline. Where that is not possible (the observer class is not visible from Pixie's
+ * class loader, or not accessible from this package) we drop to a MethodHandle, and failing that
+ * to plain reflection, so every observer that worked before still works.
+ *
+ * Whatever the strategy, an Invoker throws exactly what the observer method threw. The reflective
+ * path unwraps InvocationTargetException itself so callers never see the difference.
+ *
+ * Invokers are cached per declaring class, so registering many instances of one observer class
+ * binds its methods only once.
+ *
+ * An @Observes long or double method gets a LongInvoker or DoubleInvoker instead, bound the same
+ * way, which passes the value through unboxed. Only the reflective fallback boxes it.
+ */
+public class Invokers {
+
+    private static final MethodHandles.Lookup LOOKUP = MethodHandles.lookup();
+
+    private static final MethodType INVOKE = MethodType.methodType(void.class, Object.class, Object.class);
+    private static final MethodType INVOKE_LONG = MethodType.methodType(void.class, Object.class, long.class);
+    private static final MethodType INVOKE_DOUBLE = MethodType.methodType(void.class, Object.class, double.class);
+
+    private Invokers() {
+    }
+
+    public interface Invoker {
+
+        void invoke(Object observer, Object event) throws Throwable;
+
+    }
+
+    public interface LongInvoker {
+
+        void invoke(Object observer, long value) throws Throwable;
+
+    }
+
+    public interface DoubleInvoker {
+
+        void invoke(Object observer, double value) throws Throwable;
+
+    }
+
+    public enum Strategy {
+
+        GENERATED {
+            @Override
+            protected Invoker create(final Method method) {
+                if (!isVisible(method.getDeclaringClass())) return METHOD_HANDLE.bind(method);
+
+                try {
+                    return generate(method, Invoker.class, INVOKE);
+                } catch (final Throwable e) {
+                    return METHOD_HANDLE.bind(method);
+                }
+            }
+
+            @Override
+            protected LongInvoker createLong(final Method method) {
+                if (!isVisible(method.getDeclaringClass())) return METHOD_HANDLE.bindLong(method);
+
+                try {
+                    return generate(method, LongInvoker.class, INVOKE_LONG);
+                } catch (final Throwable e) {
+                    return METHOD_HANDLE.bindLong(method);
+                }
+            }
+
+            @Override
+            protected DoubleInvoker createDouble(final Method method) {
+                if (!isVisible(method.getDeclaringClass())) return METHOD_HANDLE.bindDouble(method);
+
+                try {
+                    return generate(method, DoubleInvoker.class, INVOKE_DOUBLE);
+                } catch (final Throwable e) {
+                    return METHOD_HANDLE.bindDouble(method);
+                }
+            }
+        },
+
+        METHOD_HANDLE {
+            @Override
+            protected Invoker create(final Method method) {
+                try {
+                    final MethodHandle handle = LOOKUP.unreflect(method).asType(INVOKE);
+                    return new HandleInvoker(handle);
+                } catch (final IllegalAccessException e) {
+                    return REFLECTION.bind(method);
+                }
+            }
+
+            @Override
+            protected LongInvoker createLong(final Method method) {
+                try {
+                    final MethodHandle handle = LOOKUP.unreflect(method).asType(INVOKE_LONG);
+                    return (observer, value) -> {
+                        handle.invokeExact(observer, value);
+                    };
+                } catch (final IllegalAccessException e) {
+                    return REFLECTION.bindLong(method);
+                }
+            }
+
+            @Override
+            protected DoubleInvoker createDouble(final Method method) {
+                try {
+                    final MethodHandle handle = LOOKUP.unreflect(method).asType(INVOKE_DOUBLE);
+                    return (observer, value) -> {
+                        handle.invokeExact(observer, value);
+                    };
+                } catch (final IllegalAccessException e) {
+                    return REFLECTION.bindDouble(method);
+                }
+            }
+        },
+
+        REFLECTION {
+            @Override
+            protected Invoker create(final Method method) {
+                return new ReflectionInvoker(method);
+            }
+
+            @Override
+            protected LongInvoker createLong(final Method method) {
+                final ReflectionInvoker invoker = new ReflectionInvoker(method);
+                return invoker::invoke;
+            }
+
+            @Override
+            protected DoubleInvoker createDouble(final Method method) {
+                final ReflectionInvoker invoker = new ReflectionInvoker(method);
+                return invoker::invoke;
+            }
+        };
+
+        // An Invoker takes the observer as an argument, so every instance of a class shares one
+        private final ClassValue<Map<Method, Invoker>> invokers = new ClassValue<Map<Method, Invoker>>() {
+            @Override
+            protected Map<Method, Invoker> computeValue(final Class<?> type) {
+                return new ConcurrentHashMap<>();
+            }
+        };
+
+        // Long and double methods are a separate set of methods, so they never collide with these
+        private final ClassValue<Map<Method, Object>> values = new ClassValue<Map<Method, Object>>() {
+            @Override
+            protected Map<Method, Object> computeValue(final Class<?> type) {
+                return new ConcurrentHashMap<>();
+            }
+        };
+
+        public Invoker bind(final Method method) {
+            return invokers.get(method.getDeclaringClass()).computeIfAbsent(method, this::create);
+        }
+
+        public LongInvoker bindLong(final Method method) {
+            return (LongInvoker) values.get(method.getDeclaringClass()).computeIfAbsent(method, this::createLong);
+        }
+
+        public DoubleInvoker bindDouble(final Method method) {
+            return (DoubleInvoker) values.get(method.getDeclaringClass()).computeIfAbsent(method, this::createDouble);
+        }
+
+        protected abstract Invoker create(Method method);
+
+        protected abstract LongInvoker createLong(Method method);
+
+        protected abstract DoubleInvoker createDouble(Method method);
+    }
+
+    /**
+     * Spins a class implementing the given single-method interface as a direct call of the
+     * observer method.
+     */
+    private static <T> T generate(final Method method, final Class<T> type, final MethodType erased) throws Throwable {
+        final MethodHandle target = LOOKUP.unreflect(method);
+        final CallSite site = LambdaMetafactory.metafactory(LOOKUP,
+                "invoke",
+                MethodType.methodType(type),
+                erased,
+                target,
+                target.type().changeReturnType(void.class));
+
+        return type.cast(site.getTarget().invoke());
+    }
+
+    /**
+     * LambdaMetafactory links the generated class against the observer class by name, so that
+     * class must resolve to the very same Class from our loader. Plugin classes living in a child
+     * loader do not, and must go through a MethodHandle instead.
+     */
+    private static boolean isVisible(final Class<?> type) {
+        final ClassLoader loader = Invokers.class.getClassLoader();
+        try {
+            return Class.forName(type.getName(), false, loader) == type;
+        } catch (final ClassNotFoundException | LinkageError e) {
+            return false;
+        }
+    }
+
+    private static class HandleInvoker implements Invoker {
+        private final MethodHandle handle;
+
+        private HandleInvoker(final MethodHandle handle) {
+            this.handle = handle;
+        }
+
+        @Override
+        public void invoke(final Object observer, final Object event) throws Throwable {
+            handle.invokeExact(observer, event);
+        }
+    }
+
+    private static class ReflectionInvoker implements Invoker {
+        private final Method method;
+
+        private ReflectionInvoker(final Method method) {
+            this.method = method;
+        }
+
+        @Override
+        public void invoke(final Object observer, final Object event) throws Throwable {
+            try {
+                method.invoke(observer, event);
+            } catch (final InvocationTargetException e) {
+                throw e.getTargetException() == null ? e : e.getTargetException();
+            } catch (final IllegalAccessException e) {
+                throw new ObserverManager.NotInvokableObserverException(method + " can't be invoked, check it is public");
+            }
+        }
+    }
+}
@@ -0,0 +1,152 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.tomitribe.pixie.observer;
+
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Level;
+
+/**
+ * A fixed set of single-threaded lanes, each draining its own bounded queue in order. A task
+ * always goes to the lane its key hashes to, so tasks with the same key run one at a time and
+ * in submission order, while tasks with different keys spread across the lanes.
+ *
+ * A full queue blocks the submitter until there is room. A task only ever runs on its own
+ * lane, never on the submitter's, as that would run it alongside the lane's other tasks.
+ *
+ * A lane that submits to its own full queue could never make room, so that fails at once with
+ * an IllegalStateException. A lane submitting to another lane's full queue waits like anyone
+ * else, which deadlocks if that lane is in turn waiting on this one; observers on lanes that
+ * fire partitioned events need queues large enough for what they fire.
+ *
+ * Shutdown is the one exception to running on the lane. Each lane finishes its queue, marks
+ * itself stopped and looks at the queue once more; a submitter that finds its lane stopped,
+ * before or after queueing, runs the task itself unless the lane already took it. Whichever
+ * way a shutdown and a submit interleave, every task runs exactly once.
+ */
+class Lanes {
+
+    private static final Runnable STOP = () -> { };
+
+    /** How long a submitter waits on a full queue before checking whether its lane stopped. */
+    private static final long RECHECK_MILLIS = 10;
+
+    private final Lane[] lanes;
+    private volatile boolean closed;
+
+    Lanes(final int count, final int capacity) {
+        this.lanes = new Lane[count];
+        for (int i = 0; i < count; i++) {
+            lanes[i] = new Lane(i, capacity);
+        }
+        for (final Lane lane : lanes) {
+            lane.start();
+        }
+    }
+
+    public void submit(final Object key, final Runnable task) {
+        final Lane lane = lanes[index(key, lanes.length)];
+        if (!lane.enqueue(task)) task.run();
+    }
+
+    static int index(final Object key, final int lanes) {
+        if (key == null) return 0;
+
+        final int hash = key.hashCode();
+        return Math.floorMod(hash ^ (hash >>> 16), lanes);
+    }
+
+    /**
+     * Lets each lane finish what is already queued, then stop. It does not wait for them, so
+     * it may be called from a lane, which stops once its current task returns.
+     */
+    public void shutdown() {
+        closed = true;
+
+        for (final Lane lane : lanes) {
+            // only wakes a lane parked on an empty queue; a full one checks closed after its task
+            lane.queue.offer(STOP);
+        }
+    }
+
+    private final class Lane extends Thread {
+        private final BlockingQueue<Runnable> queue;
+        private volatile boolean stopped;
+
+        private Lane(final int index, final int capacity) {
+            super("pixie-lane-" + index);
+            this.queue = new ArrayBlockingQueue<>(capacity);
+            setDaemon(true);
+        }
+
+        /**
+         * Queues the task for this lane, or returns false if the lane has stopped and the task
+         * is the caller's to run.
+         */
+        private boolean enqueue(final Runnable task) {
+            if (stopped) return false;
+
+            if (!queue.offer(task)) {
+                if (this == Thread.currentThread()) {
+                    throw new IllegalStateException(getName() + " queue is full, and waiting for room from "
+                            + getName() + " itself would never end; raise pixie.lanes.queue");
+                }
+
+                try {
+                    while (!queue.offer(task, RECHECK_MILLIS, TimeUnit.MILLISECONDS)) {
+                        if (stopped) return false;
+                    }
+                } catch (final InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    throw new IllegalStateException("Interrupted waiting for room in " + getName(), e);
+                }
+            }
+
+            // queued after the lane's last look: if it is still there, nobody else will run it
+            return !(stopped && queue.remove(task));
+        }
+
+        @Override
+        public void run() {
+            try {
+                while (!closed) {
+                    final Runnable task = queue.take();
+                    if (task != STOP) deliver(task);
+                }
+            } catch (final InterruptedException e) {
+                // stopped from outside; what is queued is still delivered
+            }
+
+            drain();
+            stopped = true;
+            drain();
+        }
+
+        private void drain() {
+            for (Runnable task = queue.poll(); task != null; task = queue.poll()) {
+                if (task != STOP) deliver(task);
+            }
+        }
+
+        private void deliver(final Runnable task) {
+            try {
+                task.run();
+            } catch (final Throwable t) {
+                // observer failures are reported by dispatch itself; this is anything else
+                ObserverManager.logger().log(Level.SEVERE, getName() + " dispatch failed", t);
+            }
+        }
+    }
+}
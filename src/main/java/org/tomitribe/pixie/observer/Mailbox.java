@@ -0,0 +1,136 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.tomitribe.pixie.observer;
+
+import org.tomitribe.pixie.Overflow;
+
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * The bounded queue in front of one asynchronous observer method. Deliveries wait here and a
+ * single drain task on the executor works through them, so the observer sees its events one at
+ * a time and in the order they were queued, and a slow observer holds at most one pool thread.
+ *
+ * When the queue is full the Overflow policy decides: wait for room, drop the oldest or newest
+ * event, or have the firing thread deliver the event itself.
+ */
+class Mailbox {
+
+    /** Deliveries made per drain task before it yields its thread to other work. */
+    private static final int BATCH = 256;
+
+    private final BlockingQueue<Runnable> queue;
+    private final int capacity;
+    private final Overflow overflow;
+    private final AtomicBoolean draining = new AtomicBoolean();
+    private final LongAdder dropped = new LongAdder();
+    private volatile Thread drainer;
+
+    Mailbox(final int capacity, final Overflow overflow) {
+        if (capacity < 1) throw new IllegalArgumentException("queue must be at least 1: " + capacity);
+        if (overflow == null) throw new IllegalArgumentException("overflow cannot be null");
+
+        this.queue = new ArrayBlockingQueue<>(capacity);
+        this.capacity = capacity;
+        this.overflow = overflow;
+    }
+
+    public void deliver(final Runnable delivery, final Executor executor) {
+        if (!queue.offer(delivery)) {
+            switch (overflow) {
+                case BLOCK:
+                    // an observer firing into its own full mailbox would wait on itself forever
+                    if (drainer == Thread.currentThread()) {
+                        delivery.run();
+                        return;
+                    }
+
+                    try {
+                        queue.put(delivery);
+                    } catch (final InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                        throw new IllegalStateException("Interrupted waiting for room in an observer queue", e);
+                    }
+                    break;
+
+                case DROP_NEWEST:
+                    dropped.increment();
+                    return;
+
+                case DROP_OLDEST:
+                    while (!queue.offer(delivery)) {
+                        if (queue.poll() != null) dropped.increment();
+                    }
+                    break;
+
+                case CALLER_RUNS:
+                    delivery.run();
+                    return;
+
+                default:
+                    throw new IllegalStateException("Unknown overflow " + overflow);
+            }
+        }
+
+        schedule(executor);
+    }
+
+    private void schedule(final Executor executor) {
+        if (draining.compareAndSet(false, true)) {
+            try {
+                executor.execute(() -> drain(executor));
+            } catch (final RuntimeException | Error e) {
+                // no drain task is running, so let the next delivery try to schedule one
+                draining.set(false);
+                throw e;
+            }
+        }
+    }
+
+    private void drain(final Executor executor) {
+        drainer = Thread.currentThread();
+        try {
+            Runnable delivery;
+            for (int i = 0; i < BATCH && (delivery = queue.poll()) != null; i++) {
+                delivery.run();
+            }
+        } finally {
+            drainer = null;
+            draining.set(false);
+        }
+
+        // something arrived after the last poll, or the batch ran out
+        if (!queue.isEmpty()) schedule(executor);
+    }
+
+    public int getCapacity() {
+        return capacity;
+    }
+
+    public int getDepth() {
+        return queue.size();
+    }
+
+    public long getDropped() {
+        return dropped.sum();
+    }
+
+    public Overflow getOverflow() {
+        return overflow;
+    }
+}
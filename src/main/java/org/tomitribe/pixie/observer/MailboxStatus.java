@@ -0,0 +1,76 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.tomitribe.pixie.observer;
+
+import org.tomitribe.pixie.Overflow;
+
+import java.lang.reflect.Method;
+
+/**
+ * A point-in-time view of an asynchronous observer's queue: how many events are waiting and
+ * how many have been dropped by its overflow policy since it was registered.
+ */
+public class MailboxStatus {
+
+    private final Object observer;
+    private final Method method;
+    private final int capacity;
+    private final int depth;
+    private final long dropped;
+    private final Overflow overflow;
+
+    public MailboxStatus(final Object observer, final Method method, final int capacity,
+                         final int depth, final long dropped, final Overflow overflow) {
+        this.observer = observer;
+        this.method = method;
+        this.capacity = capacity;
+        this.depth = depth;
+        this.dropped = dropped;
+        this.overflow = overflow;
+    }
+
+    public Object getObserver() {
+        return observer;
+    }
+
+    public Method getMethod() {
+        return method;
+    }
+
+    public int getCapacity() {
+        return capacity;
+    }
+
+    public int getDepth() {
+        return depth;
+    }
+
+    public long getDropped() {
+        return dropped;
+    }
+
+    public Overflow getOverflow() {
+        return overflow;
+    }
+
+    @Override
+    public String toString() {
+        return "MailboxStatus{" +
+                "method=" + method +
+                ", depth=" + depth + "/" + capacity +
+                ", dropped=" + dropped +
+                ", overflow=" + overflow +
+                '}';
+    }
+}
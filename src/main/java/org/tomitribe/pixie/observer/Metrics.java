@@ -0,0 +1,128 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.tomitribe.pixie.observer;
+
+import java.lang.reflect.Method;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * The live counters behind DispatchMetrics. Recording is a LongAdder increment or two, so
+ * threads firing the same event on different cores do not contend on one cache line, and the
+ * latency histogram is an array of LongAdders - lock-free, with no resizing.
+ *
+ * An ObserverManager only builds metered chains while metrics are enabled; with metrics off
+ * none of this is on the dispatch path at all.
+ */
+class Metrics {
+
+    private static final int BUCKETS = 64;
+
+    /** Fire counters indexed by EventTypes id, so they do not pin event classes. */
+    private volatile LongAdder[] fires = new LongAdder[0];
+
+    private final Map<ObserverManager.MethodInvocation, MethodMetrics> methods = new ConcurrentHashMap<>();
+
+    public LongAdder fires(final Class<?> type) {
+        final int id = EventTypes.id(type);
+
+        final LongAdder[] fires = this.fires;
+        if (id < fires.length && fires[id] != null) return fires[id];
+
+        return create(id);
+    }
+
+    private synchronized LongAdder create(final int id) {
+        LongAdder[] fires = this.fires;
+        if (id < fires.length && fires[id] != null) return fires[id];
+
+        fires = Arrays.copyOf(fires, Math.max(fires.length, id + 1));
+        fires[id] = new LongAdder();
+        this.fires = fires;
+        return fires[id];
+    }
+
+    public MethodMetrics method(final ObserverManager.MethodInvocation invocation) {
+        return methods.computeIfAbsent(invocation, i -> new MethodMetrics());
+    }
+
+    /**
+     * Drops the figures of an observer that is no longer registered, so they do not keep it
+     * reachable. Observers are matched with equals, just as removeObserver matches them.
+     */
+    public void forget(final Object observer) {
+        methods.keySet().removeIf(invocation -> observer.equals(invocation.getObserver()));
+    }
+
+    /**
+     * Drops the figures of weakly held observers that have since been collected.
+     */
+    public void forgetCollected() {
+        methods.keySet().removeIf(invocation -> invocation.getObserver() == null);
+    }
+
+    public DispatchMetrics snapshot() {
+        final Map<Class<?>, Long> fires = new LinkedHashMap<>();
+
+        final LongAdder[] adders = this.fires;
+        for (int id = 0; id < adders.length; id++) {
+            if (adders[id] == null) continue;
+
+            final Class<?> type = EventTypes.type(id);
+            if (type != null) fires.put(type, adders[id].sum());
+        }
+
+        final List<DispatchMetrics.ObserverMetrics> observers = new ArrayList<>();
+        for (final Map.Entry<ObserverManager.MethodInvocation, MethodMetrics> entry : methods.entrySet()) {
+            final ObserverManager.MethodInvocation invocation = entry.getKey();
+            observers.add(entry.getValue().snapshot(invocation.getObserver(), invocation.getMethod()));
+        }
+
+        return new DispatchMetrics(fires, observers);
+    }
+
+    public static class MethodMetrics {
+        private final LongAdder failures = new LongAdder();
+        private final LongAdder total = new LongAdder();
+        private final LongAdder[] buckets = new LongAdder[BUCKETS];
+
+        private MethodMetrics() {
+            for (int i = 0; i < buckets.length; i++) {
+                buckets[i] = new LongAdder();
+            }
+        }
+
+        public void record(final long nanos, final boolean failed) {
+            final long latency = Math.max(0, nanos);
+            buckets[latency == 0 ? 0 : 63 - Long.numberOfLeadingZeros(latency)].increment();
+            total.add(latency);
+            if (failed) failures.increment();
+        }
+
+        private DispatchMetrics.ObserverMetrics snapshot(final Object observer, final Method method) {
+            final long[] counts = new long[buckets.length];
+            for (int i = 0; i < counts.length; i++) {
+                counts[i] = buckets[i].sum();
+            }
+
+            final DispatchMetrics.Histogram latency = new DispatchMetrics.Histogram(counts, total.sum());
+            return new DispatchMetrics.ObserverMetrics(observer, method, failures.sum(), latency);
+        }
+    }
+}
@@ -0,0 +1,62 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.tomitribe.pixie.observer;
+
+/**
+ * Calls the @Observes methods of one observer class directly, with no reflection. Implementations
+ * are generated at compile time by the optional pixie-processor annotation processor, as a class
+ * named after the observer's binary name plus SUFFIX, in the same package.
+ *
+ * When registering an instance of a class that has a dispatcher, Pixie reads the observer
+ * methods from it rather than scanning the class, and delivers events through dispatch. Classes
+ * without one are handled as before.
+ */
+public interface ObserverDispatcher {
+
+    String SUFFIX = "$$PixieDispatcher";
+
+    /**
+     * The name of each observer method. The position of a method in this array is its index in
+     * the parameters and events arrays and in dispatch.
+     */
+    String[] methods();
+
+    /**
+     * The declared parameter type of each observer method, such as BeforeEvent.class.
+     */
+    Class<?>[] parameters();
+
+    /**
+     * The event type each observer method observes: the parameter type, or for BeforeEvent and
+     * AfterEvent observers its type argument.
+     */
+    Class<?>[] events();
+
+    /**
+     * The name of each method observing a long or double. These are not dispatched, which
+     * could only pass the value boxed; Pixie binds them itself.
+     */
+    String[] values();
+
+    /**
+     * The parameter type, long.class or double.class, of each method in values.
+     */
+    Class<?>[] valueTypes();
+
+    /**
+     * Invokes the given observer method of the observer with the event. Anything the method
+     * throws is thrown as is.
+     */
+    void dispatch(int method, Object observer, Object event) throws Throwable;
+}
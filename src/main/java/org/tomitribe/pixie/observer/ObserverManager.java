@@ -14,39 +14,54 @@
 package org.tomitribe.pixie.observer;
 
 
+import org.tomitribe.pixie.EventConsumer;
 import org.tomitribe.pixie.Observes;
 import org.tomitribe.pixie.event.AfterEvent;
 import org.tomitribe.pixie.event.BeforeEvent;
 import org.tomitribe.pixie.event.ObserverAdded;
 import org.tomitribe.pixie.event.ObserverFailed;
-import org.tomitribe.pixie.event.ObserverNotFound;
 import org.tomitribe.pixie.event.ObserverRemoved;
 import org.tomitribe.util.Join;
 
-import java.lang.annotation.Annotation;
+import java.lang.ref.Reference;
+import java.lang.ref.ReferenceQueue;
+import java.lang.ref.WeakReference;
 import java.lang.reflect.InvocationTargetException;
 import java.lang.reflect.Method;
-import java.lang.reflect.Modifier;
-import java.lang.reflect.ParameterizedType;
-import java.lang.reflect.Type;
-import java.lang.reflect.WildcardType;
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collections;
 import java.util.HashMap;
 import java.util.HashSet;
-import java.util.LinkedHashSet;
-import java.util.LinkedList;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.BinaryOperator;
 import java.util.function.Consumer;
+import java.util.function.DoubleConsumer;
+import java.util.function.Function;
+import java.util.function.LongConsumer;
+import java.util.function.Supplier;
+import java.util.function.UnaryOperator;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 
 public class ObserverManager {
 
+    /**
+     * Invocations that have failed during the current fire on this thread, so a failing observer
+     * is reported once even when the ObserverFailed it causes reaches it again. The set is cleared
+     * rather than removed, so each thread creates one set at most.
+     */
     private static final ThreadLocal<Set<Invocation>> seen = new ThreadLocal<Set<Invocation>>() {
         @Override
         protected Set<Invocation> initialValue() {
@@ -54,21 +69,81 @@ public class ObserverManager {
         }
     };
 
+    /**
+     * How deeply this thread is nested in fireEvent, and whether anything failed on the way.
+     * Entering and leaving a fire only touches these two ints, so a fire in which nothing fails
+     * allocates nothing and never looks at the seen set. The outermost fire clears the set if
+     * anything was added to it. Both ThreadLocal values are JDK types, so leaving them on pooled
+     * threads pins no class loader.
+     */
+    private static final ThreadLocal<int[]> guard = ThreadLocal.withInitial(() -> new int[2]);
+    private static final int DEPTH = 0;
+    private static final int FAILED = 1;
+
     // lazy init since it is used in SystemInstance
     private static final AtomicReference<Logger> LOGGER = new AtomicReference<>();
-    private final Set<Observer> observers = new LinkedHashSet<>();
-    private final Map<Class, Invocation> methods = new ConcurrentHashMap<>();
+    private final AtomicReference<Registry> registry = new AtomicReference<>(new Registry(new Observer[0]));
+    private final Invokers.Strategy strategy;
+    private volatile Executor executor = ForkJoinPool.commonPool();
+    private final Unobserved unobserved = new Unobserved();
+    private volatile Metrics metrics;
+    private volatile Partitions partitions;
+    private volatile Coalescing coalescing;
+    private final Map<Class<?>, Function<Object, ?>> routingKeys = new ConcurrentHashMap<>();
+    private final Map<Class<?>, ForkJoinPool> fanOuts = new ConcurrentHashMap<>();
+    private final List<EventRing<?>> rings = new CopyOnWriteArrayList<>();
+    private final ReferenceQueue<Object> collected = new ReferenceQueue<>();
+    private int lanes = Runtime.getRuntime().availableProcessors();
+    private int laneCapacity = 1024;
+
+    public ObserverManager() {
+        this(Invokers.Strategy.GENERATED);
+    }
 
+    public ObserverManager(final Invokers.Strategy strategy) {
+        if (strategy == null) throw new IllegalArgumentException("strategy cannot be null");
+        this.strategy = strategy;
+    }
 
     public boolean addObserver(final Object observer) {
+        return addObserver(observer, null);
+    }
+
+    /**
+     * Adds the observer with a routing key. Its @Observes methods that do not declare a key of
+     * their own are called only for events whose key, as given by the function registered with
+     * keyBy, equals this one. A null key adds the observer unkeyed.
+     */
+    public boolean addObserver(final Object observer, final Object key) {
+        return add(observer, key, null);
+    }
+
+    /**
+     * Adds the observer without keeping it reachable. Once nothing else refers to it and it is
+     * garbage collected, it is dropped from dispatch as if removeObserver had been called,
+     * except that no ObserverRemoved is fired since there is no observer left to report.
+     */
+    public boolean addWeakObserver(final Object observer) {
+        return addWeakObserver(observer, null);
+    }
+
+    /**
+     * As addWeakObserver, with a routing key as for addObserver(observer, key).
+     */
+    public boolean addWeakObserver(final Object observer, final Object key) {
+        return add(observer, key, collected);
+    }
+
+    private boolean add(final Object observer, final Object key, final ReferenceQueue<Object> weak) {
         if (observer == null) {
             throw new IllegalArgumentException("observer cannot be null");
         }
 
+        expunge();
+
         try {
-            final Observer wrapper = new Observer(observer);
-            if (wrapper.hasObserverMethods() && observers.add(wrapper)) {
-                methods.clear();
+            final Observer wrapper = new Observer(observer, key, weak);
+            if (wrapper.hasObserverMethods() && publish(registry -> registry.add(wrapper))) {
                 fireEvent(new ObserverAdded(observer));
                 return true;
             } else {
@@ -83,9 +158,15 @@ public class ObserverManager {
         if (observer == null) {
             throw new IllegalArgumentException("listener cannot be null");
         }
+
+        expunge();
+
         try {
-            if (observers.remove(new Observer(observer))) {
-                methods.clear();
+            final Observer wrapper = new Observer(observer);
+            if (publish(registry -> registry.remove(wrapper))) {
+                final Metrics metrics = this.metrics;
+                if (metrics != null) metrics.forget(observer);
+
                 fireEvent(new ObserverRemoved(observer));
                 return true;
             } else {
@@ -96,27 +177,495 @@ public class ObserverManager {
         }
     }
 
+    /**
+     * Drops every weakly held observer that has been collected since the last call. Writers call
+     * this before changing the registry, and a weak observer's invocation calls it when it finds
+     * its observer gone, so dispatch stops reaching collected observers without fireEvent ever
+     * polling the queue itself.
+     */
+    private void expunge() {
+        Reference<?> reference;
+        while ((reference = collected.poll()) != null) {
+            final Observer observer = ((WeakObserver) reference).wrapper;
+            publish(registry -> registry.remove(observer));
+
+            final Metrics metrics = this.metrics;
+            if (metrics != null) metrics.forgetCollected();
+        }
+    }
+
+    /**
+     * Writers never touch the published Registry; they derive a new one and swap it in, retrying
+     * if another writer got there first. Returns false if the change was a no-op.
+     */
+    private boolean publish(final UnaryOperator<Registry> change) {
+        while (true) {
+            final Registry current = registry.get();
+            final Registry next = change.apply(current);
+
+            if (next == current) return false;
+            if (registry.compareAndSet(current, next)) return true;
+        }
+    }
+
     public <E> E fireEvent(final E event) {
         if (event == null) {
             throw new IllegalArgumentException("event cannot be null");
         }
 
+        final Coalescing coalescing = this.coalescing;
+        if (coalescing != null && coalescing.offer(event)) return event;
+
+        return route(event);
+    }
+
+    /**
+     * Dispatches the event here, or hands it to its lane if its type is partitioned.
+     */
+    private <E> E route(final E event) {
+        final Partitions partitions = this.partitions;
+        if (partitions != null) {
+            final Function<Object, ?> key = partitions.get(event.getClass());
+            if (key != null) {
+                partitions.submit(key.apply(event), () -> dispatch(event));
+                return event;
+            }
+        }
+
+        return dispatch(event);
+    }
+
+    private <E> E dispatch(final E event) {
+        final int[] guard = ObserverManager.guard.get();
+        guard[DEPTH]++;
         try {
             return doFire(event);
         } finally {
-            seen.remove();
+            exit(guard);
         }
     }
 
+    /**
+     * As dispatch, for a caller that has already looked up the event's invocation.
+     */
+    private void dispatch(final Object event, final Class<?> type, final Invocation invocation) {
+        final int[] guard = ObserverManager.guard.get();
+        guard[DEPTH]++;
+        try {
+            doFire(event, type, invocation);
+        } finally {
+            exit(guard);
+        }
+    }
+
+    private static void exit(final int[] guard) {
+        if (--guard[DEPTH] == 0 && guard[FAILED] != 0) {
+            guard[FAILED] = 0;
+            seen.get().clear();
+        }
+    }
+
+    /**
+     * Fires every event, in iteration order, with the same Before, Invoke and After phases
+     * fireEvent would give each one. The observer chain is looked up again only when the event
+     * class changes, and against one registry snapshot for the whole batch.
+     */
+    public <E> void fireEvents(final Iterable<E> events) {
+        fireEvents(events, Object.class);
+    }
+
+    private void fireEvents(final Iterable<?> events, final Class<?> bound) {
+        if (events == null) {
+            throw new IllegalArgumentException("events cannot be null");
+        }
+
+        final int[] guard = ObserverManager.guard.get();
+        guard[DEPTH]++;
+        try {
+            fireEvents(events, bound, guard);
+        } finally {
+            exit(guard);
+        }
+    }
+
+    private void fireEvents(final Iterable<?> events, final Class<?> bound, final int[] guard) {
+        final Registry registry = this.registry.get();
+        final Partitions partitions = this.partitions;
+        final Coalescing coalescing = this.coalescing;
+
+        Class<?> type = null;
+        Invocation invocation = null;
+        Function<Object, ?> key = null;
+        boolean coalesced = false;
+
+        for (final Object event : events) {
+            if (event == null) {
+                throw new IllegalArgumentException("event cannot be null");
+            }
+
+            if (event.getClass() != type) {
+                if (!bound.isInstance(event)) {
+                    throw new IllegalArgumentException(
+                            "event " + event.getClass().getName() + " is not a " + bound.getName());
+                }
+
+                type = event.getClass();
+                invocation = registry.getInvocation(type);
+                key = partitions == null ? null : partitions.get(type);
+                coalesced = coalescing != null && coalescing.coalesces(type);
+            }
+
+            if (coalesced && coalescing.offer(event)) continue;
+
+            if (key != null) {
+                partitions.submit(key.apply(event), () -> dispatch(event));
+                continue;
+            }
+
+            doFire(event, type, invocation);
+
+            // the failure guard is per event, as it is for fireEvent
+            if (guard[DEPTH] == 1 && guard[FAILED] != 0) {
+                guard[FAILED] = 0;
+                seen.get().clear();
+            }
+        }
+    }
+
+    /**
+     * Dispatches the event on the executor. Before, Invoke and After phases run in order on
+     * that thread, exactly as fireEvent would run them. The future completes with the event
+     * once every synchronous observer has been called, or exceptionally if dispatch itself
+     * failed (an observer's own failure is reported as ObserverFailed, as usual).
+     */
+    public <E> CompletableFuture<E> fireEventAsync(final E event) {
+        if (event == null) {
+            throw new IllegalArgumentException("event cannot be null");
+        }
+
+        final Coalescing coalescing = this.coalescing;
+        if (coalescing != null) {
+            final CompletableFuture<Void> delivered = coalescing.offerAsync(event);
+            if (delivered != null) return delivered.thenApply(done -> event);
+        }
+
+        final CompletableFuture<E> laned = submitToLane(event);
+        if (laned != null) return laned;
+
+        return CompletableFuture.supplyAsync(() -> dispatch(event), executor);
+    }
+
+    /**
+     * As route, but returns a future completed once the event has been dispatched: on its lane
+     * if its type is partitioned, or here, in which case the future is already complete.
+     */
+    private <E> CompletableFuture<E> routeAsync(final E event) {
+        final CompletableFuture<E> laned = submitToLane(event);
+        if (laned != null) return laned;
+
+        return CompletableFuture.completedFuture(dispatch(event));
+    }
+
+    /**
+     * Hands the event to its lane, returning a future completed once the lane has dispatched
+     * it, or null if the event's type is not partitioned.
+     */
+    private <E> CompletableFuture<E> submitToLane(final E event) {
+        final Partitions partitions = this.partitions;
+        if (partitions == null) return null;
+
+        final Function<Object, ?> key = partitions.get(event.getClass());
+        if (key == null) return null;
+
+        final CompletableFuture<E> future = new CompletableFuture<>();
+        partitions.submit(key.apply(event), () -> {
+            try {
+                future.complete(dispatch(event));
+            } catch (final Throwable t) {
+                future.completeExceptionally(t);
+            }
+        });
+        return future;
+    }
+
+    /**
+     * Delivers the value to every @Observes long method, without boxing it. Values have no
+     * Before or After phase, partitions, coalescing, keys or metrics; they are simply handed to
+     * each observer in turn. An observer that throws is reported as usual, with the boxed value
+     * as the ObserverFailed event.
+     */
+    public void fireLong(final long value) {
+        final LongInvocation[] invocations = registry.get().longs;
+        if (invocations.length == 0) {
+            unobserved.record(long.class);
+            return;
+        }
+
+        final int[] guard = ObserverManager.guard.get();
+        guard[DEPTH]++;
+        try {
+            for (final LongInvocation invocation : invocations) {
+                invocation.invoke(value);
+            }
+        } finally {
+            exit(guard);
+        }
+    }
+
+    /**
+     * Delivers the value to every @Observes double method, without boxing it. See fireLong.
+     */
+    public void fireDouble(final double value) {
+        final DoubleInvocation[] invocations = registry.get().doubles;
+        if (invocations.length == 0) {
+            unobserved.record(double.class);
+            return;
+        }
+
+        final int[] guard = ObserverManager.guard.get();
+        guard[DEPTH]++;
+        try {
+            for (final DoubleInvocation invocation : invocations) {
+                invocation.invoke(value);
+            }
+        } finally {
+            exit(guard);
+        }
+    }
+
+    /**
+     * Dispatches events of this type, and its subtypes, on partitioned lanes. fireEvent hands
+     * each such event to the lane its key hashes to and returns at once; each lane is a single
+     * thread delivering its events in the order they were fired. Events with equal keys are
+     * therefore observed one at a time and in order, while different keys run in parallel.
+     *
+     * Where several registered types apply, the most specific one's key is used. A null key is
+     * a valid key like any other.
+     */
+    public <E> void partition(final Class<E> type, final Function<? super E, ?> key) {
+        if (type == null) throw new IllegalArgumentException("type cannot be null");
+        if (key == null) throw new IllegalArgumentException("key cannot be null");
+
+        synchronized (this) {
+            if (partitions == null) partitions = new Partitions(lanes, laneCapacity);
+        }
+        partitions.add(type, key);
+
+        // a new Registry invalidates the invocations injected consumers have remembered
+        publish(Registry::rebuild);
+    }
+
+    /**
+     * Coalesces events of this type, and its subtypes, so that observers see at most one per
+     * window and it is the last one fired. See the combiner variant.
+     */
+    public <E> void coalesce(final Class<E> type, final long window, final TimeUnit unit) {
+        coalesce(type, window, unit, (previous, next) -> next);
+    }
+
+    /**
+     * Coalesces events of this type, and its subtypes. The first such event opens a window of
+     * the given length and fireEvent returns without delivering it; each event fired while the
+     * window is open is merged into the pending one as combiner(pending, event). When the window
+     * closes the merged event is delivered, from Pixie's timer thread, through the usual phases
+     * and partition lanes. fireEventAsync's future completes once that delivery is done.
+     *
+     * Where several registered types apply, the most specific one's window and combiner are
+     * used, and events of all its subtypes share its windows.
+     */
+    public <E> void coalesce(final Class<E> type, final long window, final TimeUnit unit,
+                             final BinaryOperator<E> combiner) {
+        if (type == null) throw new IllegalArgumentException("type cannot be null");
+        if (window <= 0) throw new IllegalArgumentException("window must be positive: " + window);
+        if (unit == null) throw new IllegalArgumentException("unit cannot be null");
+        if (combiner == null) throw new IllegalArgumentException("combiner cannot be null");
+
+        synchronized (this) {
+            if (coalescing == null) coalescing = new Coalescing(this::routeAsync);
+        }
+        coalescing.add(type, unit.toNanos(window), combiner);
+
+        // a new Registry invalidates the invocations injected consumers have remembered
+        publish(Registry::rebuild);
+    }
+
+    /**
+     * Gives events of this type, and its subtypes, a routing key. Keyed observers, those added
+     * with a key or declaring @Observes(key = ...), are then called only for events whose key
+     * equals theirs, found with one hash lookup however many keyed observers there are.
+     * Unkeyed observers see every event as before. Where several registered types apply, the
+     * most specific one's function is used; a keyed observer of an event type with no key
+     * function is never called.
+     *
+     * Within a phase, observers are still called in registration order, except that the keyed
+     * observers matching an event are called together, in their own registration order, at the
+     * place of the first keyed observer registered.
+     */
+    @SuppressWarnings("unchecked")
+    public <E> void keyBy(final Class<E> type, final Function<? super E, ?> key) {
+        if (type == null) throw new IllegalArgumentException("type cannot be null");
+        if (key == null) throw new IllegalArgumentException("key cannot be null");
+
+        routingKeys.put(type, (Function<Object, ?>) key);
+
+        // the routing index is part of each dispatch chain, so they must all be rebuilt
+        publish(Registry::rebuild);
+    }
+
+    private Function<Object, ?> routingKey(final Class<?> type) {
+        if (routingKeys.isEmpty()) return null;
+
+        final Class<?> match = Resolver.bestMatch(type, routingKeys.keySet());
+        return match == null ? null : routingKeys.get(match);
+    }
+
+    /**
+     * Delivers events of this type, and its subtypes, to their observers in parallel on the
+     * common ForkJoinPool. See the pool variant.
+     */
+    public void parallel(final Class<?> type) {
+        parallel(type, ForkJoinPool.commonPool());
+    }
+
+    /**
+     * Delivers events of this type, and its subtypes, to their observers in parallel. The
+     * Invoke phase is split across the pool, one task per observer, with the firing thread
+     * taking the first observer itself; Before observers all run before it and After observers
+     * after it. fireEvent returns only once every observer is done, and each failure is
+     * reported as an ObserverFailed, from the thread it happened on.
+     *
+     * Only worth it when the observers are independent and each does enough work to outweigh
+     * handing it to another thread; observers then see the event in no particular order.
+     */
+    public void parallel(final Class<?> type, final ForkJoinPool pool) {
+        if (type == null) throw new IllegalArgumentException("type cannot be null");
+        if (pool == null) throw new IllegalArgumentException("pool cannot be null");
+
+        fanOuts.put(type, pool);
+
+        // the fan-out is part of each dispatch chain, so they must all be rebuilt
+        publish(Registry::rebuild);
+    }
+
+    private ForkJoinPool fanOut(final Class<?> type) {
+        if (fanOuts.isEmpty()) return null;
+
+        final Class<?> match = Resolver.bestMatch(type, fanOuts.keySet());
+        return match == null ? null : fanOuts.get(match);
+    }
+
+    /**
+     * How many lanes partitioned events are spread over (by default one per processor) and how
+     * many events each lane may queue (by default 1024) before fireEvent waits for room. Lanes
+     * start on the first partitioned fire and cannot be reconfigured after that.
+     */
+    public synchronized void setLanes(final int count, final int capacity) {
+        if (count < 1) throw new IllegalArgumentException("lane count must be at least 1: " + count);
+        if (capacity < 1) throw new IllegalArgumentException("lane queue size must be at least 1: " + capacity);
+        if (partitions != null) partitions.configure(count, capacity);
+
+        this.lanes = count;
+        this.laneCapacity = capacity;
+    }
+
+    /**
+     * Every event type fired so far with no observers at all, and how many times. Pixie's own
+     * events are not included.
+     */
+    public Map<Class<?>, Long> getUnobservedEvents() {
+        return unobserved.snapshot();
+    }
+
+    /**
+     * By default an unobserved event type is logged the first time it is fired and only counted
+     * after that. A positive interval logs it again, with its count, at most once per interval.
+     */
+    public void setUnobservedLogInterval(final long interval, final TimeUnit unit) {
+        unobserved.setInterval(interval, unit);
+    }
+
+    /**
+     * Turns dispatch metrics on or off. Metrics are recorded by separate, metered dispatch
+     * chains, so switching rebuilds the chains and with metrics off the usual chains run
+     * untouched. Turning metrics on starts from zero.
+     */
+    public void setMetricsEnabled(final boolean enabled) {
+        if (enabled == (metrics != null)) return;
+
+        metrics = enabled ? new Metrics() : null;
+        publish(Registry::rebuild);
+    }
+
+    public boolean isMetricsEnabled() {
+        return metrics != null;
+    }
+
+    /**
+     * A snapshot of the dispatch metrics recorded so far, or null when metrics are off.
+     */
+    public DispatchMetrics getMetrics() {
+        final Metrics metrics = this.metrics;
+        return metrics == null ? null : metrics.snapshot();
+    }
+
+    /**
+     * The queue depth and drop count of every @Observes(async = true) observer method.
+     */
+    public List<MailboxStatus> getMailboxes() {
+        final List<MailboxStatus> statuses = new ArrayList<>();
+        for (final Observer observer : registry.get().observers) {
+            observer.mailboxes(statuses);
+        }
+        return statuses;
+    }
+
+    public Executor getExecutor() {
+        return executor;
+    }
+
+    /**
+     * The executor used by fireEventAsync and by @Observes(async = true) observers. Defaults to
+     * the common ForkJoinPool.
+     */
+    public void setExecutor(final Executor executor) {
+        if (executor == null) throw new IllegalArgumentException("executor cannot be null");
+        this.executor = executor;
+    }
+
     public <E> Consumer<E> consumersOf(final Class<E> eventClass) {
         if (eventClass == null) throw new IllegalArgumentException("eventClass cannot be null");
         return new ConsumerReference(eventClass);
     }
 
-    private class ConsumerReference<E> implements Consumer<E> {
+    /**
+     * The consumer injected for an @Event LongConsumer parameter; each value goes to fireLong.
+     */
+    public LongConsumer longConsumer() {
+        return this::fireLong;
+    }
+
+    /**
+     * The consumer injected for an @Event DoubleConsumer parameter; each value goes to fireDouble.
+     */
+    public DoubleConsumer doubleConsumer() {
+        return this::fireDouble;
+    }
+
+    /**
+     * The consumer injected for an @Event parameter. It remembers the invocation it last
+     * dispatched, together with the event class and the Registry it came from. The Registry
+     * is immutable and replaced on every change to the observers, so it serves as a version
+     * stamp: while the same Registry is current and events keep arriving with the same class,
+     * accept goes straight to the remembered invocation, with no type check and no lookup. For
+     * a final event type every event has the same class, so every accept after the first does.
+     */
+    private class ConsumerReference<E> implements EventConsumer<E> {
 
         private final Class<E> type;
 
+        // immutable, so a plain field is safe to share; a stale read only costs a lookup
+        private Resolved resolved;
+
         private ConsumerReference(final Class<E> type) {
             if (type == null) throw new IllegalArgumentException("type cannot be null");
             this.type = type;
@@ -124,14 +673,37 @@ public class ObserverManager {
 
         @Override
         public void accept(final E e) {
+            final Resolved resolved = this.resolved;
+            if (e != null && resolved != null && resolved.type == e.getClass()
+                    && resolved.registry == registry.get()) {
+                dispatch(e, resolved.type, resolved.invocation);
+                return;
+            }
+
             if (e != null && !type.isInstance(e)) {
                 throw new IllegalArgumentException(
                         "event " + e.getClass().getName() + " is not a " + type.getName());
             }
-            // Dispatch on the runtime type, exactly like fireEvent, so observers registered
-            // on a subtype of the static type T are reached. The static type is kept only as
-            // a compile-time bound and the runtime assertion above.
-            fireEvent(e);
+
+            if (e == null || routed(e.getClass())) {
+                // Dispatch on the runtime type, exactly like fireEvent, so observers registered
+                // on a subtype of the static type T are reached. The static type is kept only as
+                // a compile-time bound and the runtime assertion above.
+                fireEvent(e);
+                return;
+            }
+
+            final Registry registry = ObserverManager.this.registry.get();
+            final Class<?> eventType = e.getClass();
+            final Invocation invocation = registry.getInvocation(eventType);
+            this.resolved = new Resolved(registry, eventType, invocation);
+
+            dispatch(e, eventType, invocation);
+        }
+
+        @Override
+        public void acceptAll(final Iterable<? extends E> events) {
+            fireEvents(events, type);
         }
 
         @Override
@@ -144,259 +716,646 @@ public class ObserverManager {
 
     private <E> E doFire(final E event) {
         final Class<?> type = event.getClass();
-
-        final Invocation invocation = getInvocation(type);
-
-        invocation.invoke(event);
-
+        doFire(event, type, getInvocation(type));
         return event;
     }
 
-    private Invocation getInvocation(final Class<?> type) {
-        {
-            final Invocation invocation = methods.get(type);
-            if (invocation != null) {
-                return invocation;
+    private void doFire(final Object event, final Class<?> type, final Invocation invocation) {
+        if (invocation == IGNORE) {
+            unobserved.record(type);
+        } else {
+            final Object flight = FlightEvents.beginFire();
+            try {
+                invocation.invoke(event);
+            } finally {
+                FlightEvents.endFire(flight, type, invocation);
             }
         }
+    }
 
-        final Invocation invocation = buildInvocation(type);
-        methods.put(type, invocation);
-        return invocation;
+    Invocation getInvocation(final Class<?> type) {
+        return registry.get().getInvocation(type);
+    }
+
+    /**
+     * Does fireEvent do anything with events of this class other than dispatch them here and
+     * now? Such events are never short-cut by ConsumerReference.
+     */
+    private boolean routed(final Class<?> type) {
+        final Partitions partitions = this.partitions;
+        final Coalescing coalescing = this.coalescing;
+        return partitions != null && partitions.get(type) != null
+                || coalescing != null && coalescing.coalesces(type);
+    }
+
+    private static final class Resolved {
+        private final Registry registry;
+        private final Class<?> type;
+        private final Invocation invocation;
+
+        private Resolved(final Registry registry, final Class<?> type, final Invocation invocation) {
+            this.registry = registry;
+            this.type = type;
+            this.invocation = invocation;
+        }
     }
 
     public void destroy() {
-        for (final Observer o : new LinkedList<>(observers)) {
-            removeObserver(o.observer);
+        for (final Observer o : registry.get().observers) {
+            final Object observer = o.get();
+            if (observer != null) removeObserver(observer);
         }
+        shutdown();
     }
 
-    private enum Phase {
-        BEFORE,
-        INVOKE,
-        AFTER
+    /**
+     * A ring of preallocated events any number of threads may publish to, whose stages park
+     * while it is empty. See the full variant.
+     */
+    public <E> EventRing<E> ring(final Class<E> type, final Supplier<? extends E> factory, final int size) {
+        return ring(type, factory, size, EventRing.Producers.MULTI, EventRing.Wait.BLOCKING);
     }
 
-    private Invocation buildInvocation(final Class<?> type) {
-        final Invocation before = buildInvocation(Phase.BEFORE, type);
-        final Invocation after = buildInvocation(Phase.AFTER, type);
-        final Invocation invoke = buildInvocation(Phase.INVOKE, type);
+    /**
+     * Creates an EventRing of size events, a power of two, each made up front by the factory.
+     * Every observer registered now with an @Observes method for the type, or a supertype,
+     * becomes one stage of the ring, consuming it on its own thread; observers added later are
+     * not. Only the Invoke phase applies: Before and After observers, partitions, coalescing and
+     * parallel delivery belong to fireEvent. An async observer is called on its stage like the
+     * others, and a keyed one only for events with its key.
+     *
+     * The ring runs until it is closed, or this ObserverManager is shut down.
+     */
+    public <E> EventRing<E> ring(final Class<E> type, final Supplier<? extends E> factory, final int size,
+                                 final EventRing.Producers producers, final EventRing.Wait wait) {
+        if (type == null) throw new IllegalArgumentException("type cannot be null");
+        if (factory == null) throw new IllegalArgumentException("factory cannot be null");
+        if (producers == null) throw new IllegalArgumentException("producers cannot be null");
+        if (wait == null) throw new IllegalArgumentException("wait cannot be null");
+
+        final EventRing<E> ring = new EventRing<>(type, factory, size, producers, wait, registry.get().stages(type),
+                rings::remove);
+        rings.add(ring);
+        return ring;
+    }
 
-        Invocation invocation = IGNORE;
+    /**
+     * Delivers any coalesced events still waiting for their window to close, then stops the
+     * partition lanes, if any were started, once they have delivered the events already queued.
+     * Rings are closed last, once their stages have consumed what was published.
+     */
+    public void shutdown() {
+        final Coalescing coalescing = this.coalescing;
+        if (coalescing != null) coalescing.shutdown();
 
-        invocation = link(invocation, before);
-        invocation = link(invocation, invoke);
-        invocation = link(invocation, after);
+        final Partitions partitions = this.partitions;
+        if (partitions != null) partitions.shutdown();
 
-        return invocation;
+        // each ring removes itself as it closes
+        for (final EventRing<?> ring : rings) {
+            ring.close();
+        }
     }
 
-    private Invocation buildInvocation(final Phase phase, final Class<?> type) {
+    /**
+     * An immutable snapshot of the registered observers together with the dispatch chains built
+     * from them. fireEvent reads whichever Registry is current without locking; since each one
+     * carries its own cache, a chain built from an older set of observers can never be cached
+     * against a newer one.
+     *
+     * A derived Registry inherits every cached chain the added or removed observer cannot take
+     * part in, so registering an observer of one type does not throw away the chains of all the
+     * others.
+     */
+    private class Registry {
+
+        private final Observer[] observers;
+        private final boolean before;
+        private final boolean after;
+        private final LongInvocation[] longs;
+        private final DoubleInvocation[] doubles;
+
+        /**
+         * Dispatch chains indexed by EventTypes id. Copied on write: a miss builds the chain and
+         * publishes a new array, so a hit is one volatile read and one array load. Holding no
+         * Class keys, the table never keeps an event class reachable.
+         */
+        private volatile Invocation[] table = new Invocation[0];
+
+        private Registry(final Observer[] observers) {
+            this.observers = observers;
+
+            boolean before = false;
+            boolean after = false;
+            final List<LongInvocation> longs = new ArrayList<>();
+            final List<DoubleInvocation> doubles = new ArrayList<>();
+            for (final Observer observer : observers) {
+                before |= observer.has(Phase.BEFORE);
+                after |= observer.has(Phase.AFTER);
+                if (observer.longs != null) longs.add(observer.longs);
+                if (observer.doubles != null) doubles.add(observer.doubles);
+            }
+            this.before = before;
+            this.after = after;
 
-        Invocation invocation = IGNORE;
+            // values are not dispatched by class, so their whole chain is just these arrays
+            this.longs = longs.toArray(new LongInvocation[0]);
+            this.doubles = doubles.toArray(new DoubleInvocation[0]);
+        }
+
+        private Registry add(final Observer observer) {
+            if (indexOf(observer) >= 0) return this;
 
-        for (final Observer observer : observers) {
+            // Event types already seen are known; a diamond among them fails the registration
+            final Invocation[] table = this.table;
+            for (int id = 0; id < table.length; id++) {
+                final Class<?> type = typeOf(table, id);
+                if (type != null) observer.resolve(type);
+            }
 
-            final Invocation method = observer.get(phase, type);
+            final Observer[] copy = Arrays.copyOf(observers, observers.length + 1);
+            copy[observers.length] = observer;
+            return derive(copy, observer);
+        }
+
+        /**
+         * The same observers with every chain dropped, for when the way chains are built changes.
+         */
+        private Registry rebuild() {
+            return new Registry(observers);
+        }
+
+        private Registry remove(final Observer observer) {
+            final int index = indexOf(observer);
+            if (index < 0) return this;
+
+            final Observer[] copy = new Observer[observers.length - 1];
+            System.arraycopy(observers, 0, copy, 0, index);
+            System.arraycopy(observers, index + 1, copy, index, copy.length - index);
+            return derive(copy, observers[index]);
+        }
 
-            if (method != null && method != IGNORE) {
+        private Registry derive(final Observer[] observers, final Observer changed) {
+            final Registry next = new Registry(observers);
 
-                invocation = link(invocation, method);
+            final Invocation[] table = this.table.clone();
+            for (int id = 0; id < table.length; id++) {
+                final Class<?> type = typeOf(table, id);
+                if (type == null || changed.observes(type)) table[id] = null;
             }
+            next.table = table;
+
+            return next;
         }
 
-        return invocation;
-    }
+        /**
+         * The event class cached at this id, or null if there is none or it has been unloaded.
+         */
+        private Class<?> typeOf(final Invocation[] table, final int id) {
+            return table[id] == null ? null : EventTypes.type(id);
+        }
 
-    private static Invocation link(Invocation first, final Invocation second) {
-        if (first == IGNORE) {
-            return second;
-        } else {
-            return first.andThen(second);
+        private int indexOf(final Observer observer) {
+            for (int i = 0; i < observers.length; i++) {
+                if (observers[i].equals(observer)) return i;
+            }
+            return -1;
         }
-    }
 
-    public static class InvocationList implements Invocation {
+        private Invocation getInvocation(final Class<?> type) {
+            final int id = EventTypes.id(type);
 
-        private final List<Invocation> invocations = new LinkedList<>();
+            {
+                final Invocation[] table = this.table;
+                if (id < table.length && table[id] != null) {
+                    return table[id];
+                }
+            }
 
-        @Override
-        public Invocation andThen(final Invocation after) {
-            add(after);
-            return this;
+            final Invocation invocation = buildInvocation(type);
+            cache(id, invocation);
+            return invocation;
         }
 
-        public boolean add(final Invocation invocation) {
-            if (invocation == IGNORE) return true;
+        private synchronized void cache(final int id, final Invocation invocation) {
+            final Invocation[] table = Arrays.copyOf(this.table, Math.max(this.table.length, id + 1));
+            table[id] = invocation;
+            this.table = table;
+        }
 
-            if (invocation instanceof InvocationList) {
+        private Invocation buildInvocation(final Class<?> type) {
+            final Invocation invocation = buildUnmeteredInvocation(type);
 
-                final InvocationList list = (InvocationList) invocation;
-                return invocations.addAll(list.invocations);
+            final Metrics metrics = ObserverManager.this.metrics;
+            if (metrics == null || invocation == IGNORE) return invocation;
 
-            } else {
-                return invocations.add(invocation);
+            return new FireCounter(metrics.fires(type), invocation);
+        }
+
+        private Invocation buildUnmeteredInvocation(final Class<?> type) {
+            final Invocation invoke = ParallelInvocation.of(buildInvocation(Phase.INVOKE, type), fanOut(type));
+
+            // The common case: nobody observes BeforeEvent or AfterEvent, one flat chain
+            if (!this.before && !this.after) return invoke;
+
+            final Invocation before = this.before ? BeforeInvocation.of(buildInvocation(Phase.BEFORE, type)) : IGNORE;
+            final Invocation after = this.after ? AfterInvocation.of(buildInvocation(Phase.AFTER, type)) : IGNORE;
+
+            return InvocationList.of(before, invoke, after);
+        }
+
+        /**
+         * One invocation per observer of the type's Invoke phase, each to be a stage of a ring.
+         * An async observer's stage calls it directly, the stage being a thread of its own, and
+         * a keyed observer's is routed on its own key.
+         */
+        private List<Invocation> stages(final Class<?> type) {
+            final List<Invocation> stages = new ArrayList<>();
+            final Metrics metrics = ObserverManager.this.metrics;
+
+            for (final Observer observer : observers) {
+                Invocation method = observer.get(Phase.INVOKE, type);
+
+                if (method == null || method == IGNORE) continue;
+
+                Object key = null;
+                if (method instanceof KeyedInvocation) {
+                    key = ((KeyedInvocation) method).key;
+                    method = ((KeyedInvocation) method).invocation;
+                }
+
+                if (method instanceof AsyncInvocation) method = ((AsyncInvocation) method).invocation;
+
+                if (metrics != null) method = meter(method, metrics);
+
+                if (key != null) {
+                    final Function<Object, ?> routing = routingKey(type);
+                    if (routing == null) continue;
+
+                    final Map<Object, List<Invocation>> keyed = new HashMap<>();
+                    keyed.put(key, Collections.singletonList(method));
+                    method = new RoutedInvocation(routing, keyed);
+                }
+
+                stages.add(method);
             }
+
+            return stages;
+        }
+
+        private Invocation buildInvocation(final Phase phase, final Class<?> type) {
+
+            final List<Invocation> invocations = new ArrayList<>();
+            final Metrics metrics = ObserverManager.this.metrics;
+            Map<Object, List<Invocation>> keyed = null;
+            int routedAt = 0;
+
+            for (final Observer observer : observers) {
+
+                Invocation method = observer.get(phase, type);
+
+                if (method == null || method == IGNORE) continue;
+
+                if (metrics != null) method = meter(method, metrics);
+
+                if (method instanceof KeyedInvocation) {
+                    final KeyedInvocation keyedMethod = (KeyedInvocation) method;
+                    if (keyed == null) {
+                        keyed = new HashMap<>();
+                        routedAt = invocations.size();
+                    }
+                    keyed.computeIfAbsent(keyedMethod.key, key -> new ArrayList<>()).add(keyedMethod.invocation);
+                } else {
+                    invocations.add(method);
+                }
+            }
+
+            // the keyed observers run together, where the first of them was registered
+            if (keyed != null) {
+                final Function<Object, ?> key = routingKey(type);
+                if (key != null) invocations.add(routedAt, new RoutedInvocation(key, keyed));
+            }
+
+            return InvocationList.of(invocations);
+        }
+    }
+
+    private Invocation meter(final Invocation invocation, final Metrics metrics) {
+        if (invocation instanceof MethodInvocation) {
+            final MethodInvocation method = (MethodInvocation) invocation;
+            return new MeteredInvocation(method, metrics.method(method));
+        }
+
+        if (invocation instanceof AsyncInvocation) {
+            final AsyncInvocation async = (AsyncInvocation) invocation;
+            return new AsyncInvocation(meter(async.invocation, metrics), async.mailbox);
+        }
+
+        if (invocation instanceof KeyedInvocation) {
+            final KeyedInvocation keyed = (KeyedInvocation) invocation;
+            return new KeyedInvocation(keyed.key, meter(keyed.invocation, metrics));
+        }
+
+        return invocation;
+    }
+
+    private static final class FireCounter implements Invocation {
+        private final LongAdder fires;
+        private final Invocation invocation;
+
+        private FireCounter(final LongAdder fires, final Invocation invocation) {
+            this.fires = fires;
+            this.invocation = invocation;
         }
 
         @Override
         public void invoke(final Object event) {
-            for (final Invocation invocation : invocations) {
-                invocation.invoke(event);
-            }
+            fires.increment();
+            invocation.invoke(event);
         }
 
         @Override
         public String toString() {
-            return String.format("InvocationList{invocations=%s}%n%s%n", invocations.size(), Join.join("\n", invocations));
+            return invocation.toString();
         }
     }
 
+    private static final class MeteredInvocation implements Invocation {
+        private final MethodInvocation invocation;
+        private final Metrics.MethodMetrics metrics;
 
-    /**
-     * @version $Rev$ $Date$
-     */
-    public class Observer {
+        private MeteredInvocation(final MethodInvocation invocation, final Metrics.MethodMetrics metrics) {
+            this.invocation = invocation;
+            this.metrics = metrics;
+        }
 
-        private final Map<Class, Invocation> before;
-        private final Map<Class, Invocation> methods;
-        private final Map<Class, Invocation> after;
-        private final Object observer;
+        @Override
+        public void invoke(final Object event) {
+            final long start = System.nanoTime();
+            final boolean delivered = invocation.deliver(event);
+            metrics.record(System.nanoTime() - start, !delivered);
+        }
 
-        public Observer(final Object observer) {
-            if (observer == null) {
-                throw new IllegalArgumentException("observer cannot be null");
+        @Override
+        public String toString() {
+            return invocation.toString();
+        }
+    }
+
+    /**
+     * How many observer methods a chain calls, for diagnostics.
+     */
+    static int countObservers(final Invocation invocation) {
+        if (invocation == IGNORE) return 0;
+        if (invocation instanceof InvocationList) {
+            int count = 0;
+            for (final Invocation each : ((InvocationList) invocation).invocations) {
+                count += countObservers(each);
             }
+            return count;
+        }
+        if (invocation instanceof Pair) {
+            return countObservers(((Pair) invocation).first) + countObservers(((Pair) invocation).second);
+        }
+        if (invocation instanceof FireCounter) return countObservers(((FireCounter) invocation).invocation);
+        if (invocation instanceof BeforeInvocation) return countObservers(((BeforeInvocation) invocation).invocation);
+        if (invocation instanceof AfterInvocation) return countObservers(((AfterInvocation) invocation).invocation);
+        if (invocation instanceof ParallelInvocation) {
+            int count = 0;
+            for (final Invocation each : ((ParallelInvocation) invocation).invocations) {
+                count += countObservers(each);
+            }
+            return count;
+        }
+        if (invocation instanceof RoutedInvocation) {
+            int count = 0;
+            for (final Invocation each : ((RoutedInvocation) invocation).index.values()) {
+                count += countObservers(each);
+            }
+            return count;
+        }
+        return 1;
+    }
 
-            final Map<Class, Invocation> before = new HashMap<>();
-            final Map<Class, Invocation> methods = new HashMap<>();
-            final Map<Class, Invocation> after = new HashMap<>();
+    private enum Phase {
+        BEFORE,
+        INVOKE,
+        AFTER
+    }
 
-            // First method claiming each observed type, per phase - used to reject duplicates.
-            final Map<Class, Method> beforeOwners = new HashMap<>();
-            final Map<Class, Method> methodOwners = new HashMap<>();
-            final Map<Class, Method> afterOwners = new HashMap<>();
+    /**
+     * An immutable, flat run of invocations. Chains are built once per event type, so all the
+     * work happens in of(): IGNOREs are dropped, nested lists are spliced in, and the result is
+     * sized to fit. No observers gives IGNORE and one observer gives that observer itself, so
+     * neither pays for a list at all; two get a Pair, which needs no loop or array.
+     */
+    public static class InvocationList implements Invocation {
 
-            this.observer = observer;
-            for (final Method method : getMethods(observer)) {
-                if (!isObserver(method)) {
-                    continue;
-                }
+        private final Invocation[] invocations;
 
-                if (method.getParameterTypes().length > 1) {
-                    throw new IllegalArgumentException("@Observes method must have only 1 parameter: " + method);
-                }
+        private InvocationList(final Invocation[] invocations) {
+            this.invocations = invocations;
+        }
 
-                if (Modifier.isAbstract(method.getModifiers())) {
-                    throw new IllegalArgumentException("@Observes method must not be abstract: " + method);
-                }
+        public static Invocation of(final Invocation... invocations) {
+            return of(Arrays.asList(invocations));
+        }
 
-                if (Modifier.isStatic(method.getModifiers())) {
-                    throw new IllegalArgumentException("@Observes method must not be static: " + method);
-                }
+        public static Invocation of(final List<Invocation> invocations) {
+            final List<Invocation> flat = new ArrayList<>(invocations.size());
+            for (final Invocation invocation : invocations) {
+                flatten(invocation, flat);
+            }
 
-                if (!Modifier.isPublic(method.getModifiers())) {
-                    throw new IllegalArgumentException("@Observes method must be public: " + method);
-                }
+            switch (flat.size()) {
+                case 0: return IGNORE;
+                case 1: return flat.get(0);
+                case 2: return new Pair(flat.get(0), flat.get(1));
+                default: return new InvocationList(flat.toArray(new Invocation[0]));
+            }
+        }
 
-                final Class<?> type = method.getParameterTypes()[0];
+        private static void flatten(final Invocation invocation, final List<Invocation> flat) {
+            if (invocation == IGNORE) return;
 
-                if (AfterEvent.class.equals(type)) {
+            if (invocation instanceof InvocationList) {
+                flat.addAll(Arrays.asList(((InvocationList) invocation).invocations));
+            } else if (invocation instanceof Pair) {
+                flat.add(((Pair) invocation).first);
+                flat.add(((Pair) invocation).second);
+            } else {
+                flat.add(invocation);
+            }
+        }
 
-                    final Class parameterClass = getParameterClass(method);
-                    checkUnique(afterOwners, parameterClass, method);
-                    after.put(parameterClass, new AfterInvocation(method, observer));
+        @Override
+        public Invocation andThen(final Invocation after) {
+            return of(this, after);
+        }
 
-                } else if (BeforeEvent.class.equals(type)) {
+        @Override
+        public void invoke(final Object event) {
+            final Invocation[] invocations = this.invocations;
+            for (int i = 0; i < invocations.length; i++) {
+                invocations[i].invoke(event);
+            }
+        }
 
-                    final Class parameterClass = getParameterClass(method);
-                    checkUnique(beforeOwners, parameterClass, method);
-                    before.put(parameterClass, new BeforeInvocation(method, observer));
+        @Override
+        public String toString() {
+            return toString(Arrays.asList(invocations));
+        }
 
-                } else {
+        private static String toString(final List<Invocation> invocations) {
+            return String.format("InvocationList{invocations=%s}%n%s%n", invocations.size(), Join.join("\n", invocations));
+        }
+    }
 
-                    validate(method, type);
-                    checkUnique(methodOwners, type, method);
-                    methods.put(type, new MethodInvocation(method, observer));
+    private static final class Pair implements Invocation {
 
-                }
-            }
+        private final Invocation first;
+        private final Invocation second;
 
-            this.after = Collections.unmodifiableMap(after);
-            this.before = Collections.unmodifiableMap(before);
-            this.methods = Collections.unmodifiableMap(methods);
+        private Pair(final Invocation first, final Invocation second) {
+            this.first = first;
+            this.second = second;
         }
 
-        public boolean hasObserverMethods() {
-            return after.size() + before.size() + methods.size() > 0;
+        @Override
+        public Invocation andThen(final Invocation after) {
+            return InvocationList.of(this, after);
         }
 
-        private Set<Method> getMethods(final Object observer) {
-            final Set<Method> methods = new HashSet<>();
-            methods.addAll(Arrays.asList(observer.getClass().getMethods()));
-            methods.addAll(Arrays.asList(observer.getClass().getDeclaredMethods()));
-            return methods;
+        @Override
+        public void invoke(final Object event) {
+            first.invoke(event);
+            second.invoke(event);
         }
 
-        private Class getParameterClass(final Method method) {
+        @Override
+        public String toString() {
+            return InvocationList.toString(Arrays.asList(first, second));
+        }
+    }
 
-            final Type[] genericParameterTypes = method.getGenericParameterTypes();
 
-            final Type generic = genericParameterTypes[0];
+    /**
+     * @version $Rev$ $Date$
+     */
+    public class Observer {
 
-            if (!(generic instanceof ParameterizedType)) {
-                final Class<?> event = method.getParameterTypes()[0];
-                throw new IllegalArgumentException("@Observes " + event.getSimpleName() + " missing generic type: " + method);
-            }
+        private final Map<Class, Invocation> before;
+        private final Map<Class, Invocation> methods;
+        private final Map<Class, Invocation> after;
+        private final LongInvocation longs;
+        private final DoubleInvocation doubles;
+        private final Object observer;
+        private final WeakObserver reference;
 
-            final ParameterizedType parameterized = ParameterizedType.class.cast(generic);
+        public Observer(final Object observer) {
+            this(observer, null);
+        }
 
-            final Type type = parameterized.getActualTypeArguments()[0];
+        public Observer(final Object observer, final Object key) {
+            this(observer, key, null);
+        }
 
-            final Class clazz;
+        /**
+         * With a queue, the observer is held only weakly, by this wrapper and by each of its
+         * MethodInvocations, and the reference is enqueued on it once the observer is collected.
+         */
+        private Observer(final Object observer, final Object key, final ReferenceQueue<Object> weak) {
+            if (observer == null) {
+                throw new IllegalArgumentException("observer cannot be null");
+            }
 
-            if (type instanceof Class) {
+            final ObserverMethods metadata = ObserverMethods.of(observer.getClass());
+
+            // Not an observer: nothing to bind, and nothing worth a weak reference
+            if (metadata.isEmpty()) {
+                this.observer = observer;
+                this.reference = null;
+                this.before = Collections.emptyMap();
+                this.methods = Collections.emptyMap();
+                this.after = Collections.emptyMap();
+                this.longs = null;
+                this.doubles = null;
+                return;
+            }
 
-                clazz = Class.class.cast(type);
+            this.observer = weak == null ? observer : null;
+            this.reference = weak == null ? null : new WeakObserver(observer, weak, this);
+            this.before = bind(metadata.getBefore(), observer, key);
+            this.methods = bind(metadata.getInvoke(), observer, key);
+            this.after = bind(metadata.getAfter(), observer, key);
+
+            LongInvocation longs = null;
+            DoubleInvocation doubles = null;
+            for (final ObserverMethods.Observed value : metadata.getValues()) {
+                final Method method = value.getMethod();
+                if (long.class.equals(value.getType())) {
+                    final Invokers.LongInvoker invoker = strategy.bindLong(method);
+                    longs = new LongInvocation(invocation(method, observer, (o, e) -> invoker.invoke(o, (Long) e)), invoker);
+                } else {
+                    final Invokers.DoubleInvoker invoker = strategy.bindDouble(method);
+                    doubles = new DoubleInvocation(invocation(method, observer, (o, e) -> invoker.invoke(o, (Double) e)), invoker);
+                }
+            }
+            this.longs = longs;
+            this.doubles = doubles;
+        }
 
-            } else if (type instanceof WildcardType) {
+        private Map<Class, Invocation> bind(final List<ObserverMethods.Observed> observed, final Object observer, final Object key) {
+            if (observed.isEmpty()) return Collections.emptyMap();
 
-                clazz = Object.class;
+            final Map<Class, Invocation> invocations = new HashMap<>();
+            for (final ObserverMethods.Observed each : observed) {
+                final Invocation invocation = invocation(each, observer);
+                invocations.put(each.getType(), keyed(each.getObserves(), key, async(each.getObserves(), invocation)));
+            }
+            return Collections.unmodifiableMap(invocations);
+        }
 
-            } else {
+        /**
+         * The observer, or null if it was held weakly and has been collected.
+         */
+        public Object get() {
+            return reference == null ? observer : reference.get();
+        }
 
-                final Class<?> event = method.getParameterTypes()[0];
-                throw new IllegalArgumentException("@Observes " + event.getSimpleName() +
-                        " unsupported generic type: " + type.getClass().getSimpleName() +
-                        "  " + method);
-            }
+        private MethodInvocation invocation(final ObserverMethods.Observed observed, final Object observer) {
+            final Method method = observed.getMethod();
 
-            validate(method, clazz);
+            // A generated dispatcher stands in for the default strategy, never an explicit one
+            final Invokers.Invoker invoker = observed.getInvoker() != null && strategy == Invokers.Strategy.GENERATED
+                    ? observed.getInvoker()
+                    : strategy.bind(method);
 
-            return clazz;
+            return invocation(method, observer, invoker);
         }
 
-        private void checkUnique(final Map<Class, Method> owners, final Class type, final Method method) {
-            final Method existing = owners.put(type, method);
-            if (existing != null) {
-                throw new IllegalArgumentException("Duplicate @Observes for type " + type.getName()
-                        + ": " + method + " conflicts with " + existing
-                        + ". An observer may declare at most one @Observes method per type; remove or merge one.");
-            }
+        private MethodInvocation invocation(final Method method, final Object observer, final Invokers.Invoker invoker) {
+            return reference == null
+                    ? new MethodInvocation(method, observer, invoker)
+                    : new WeakMethodInvocation(method, reference, invoker);
         }
 
-        private void validate(final Method method, final Class<?> type) {
-            if (type.isAnnotation()) {
-                throw new IllegalArgumentException("@Observes method parameter must not be an annotation: " + method.toString());
-            }
+        public boolean hasObserverMethods() {
+            return after.size() + before.size() + methods.size() > 0 || longs != null || doubles != null;
+        }
 
-            if (type.isArray()) {
-                throw new IllegalArgumentException("@Observes method parameter must be a concrete class (not an array): " + method.toString());
-            }
+        /**
+         * Could this observer take part, in any phase, in the dispatch of the given event type?
+         */
+        public boolean observes(final Class<?> eventType) {
+            return observes(before, eventType) || observes(methods, eventType) || observes(after, eventType);
+        }
 
-            if (type.isPrimitive()) {
-                throw new IllegalArgumentException("@Observes method parameter must be a concrete class (not a primitive): " + method.toString());
+        private boolean observes(final Map<Class, Invocation> map, final Class<?> eventType) {
+            for (final Class type : map.keySet()) {
+                if (type.isAssignableFrom(eventType)) return true;
             }
+            return false;
         }
 
         private Map<Class, Invocation> map(final Phase event) {
@@ -416,8 +1375,22 @@ public class ObserverManager {
             return get(map(event), eventType);
         }
 
+        /**
+         * Resolves this observer's method for each phase of the event type, surfacing an
+         * AmbiguousObserverException without dispatching anything.
+         */
+        private void resolve(final Class eventType) {
+            for (final Phase phase : Phase.values()) {
+                get(phase, eventType);
+            }
+        }
+
+        private boolean has(final Phase event) {
+            return !map(event).isEmpty();
+        }
+
         private Invocation get(final Map<Class, Invocation> map, final Class eventType) {
-            if (eventType == null) {
+            if (eventType == null || map.isEmpty()) {
                 return IGNORE;
             }
 
@@ -429,15 +1402,36 @@ public class ObserverManager {
             return selected == null ? IGNORE : map.get(selected);
         }
 
-        private boolean isObserver(final Method method) {
-            for (final Annotation[] annotations : method.getParameterAnnotations()) {
-                for (final Annotation annotation : annotations) {
-                    if (annotation.annotationType().equals(Observes.class)) {
-                        return true;
-                    }
+        private Invocation async(final Observes observes, final Invocation invocation) {
+            if (!observes.async()) return invocation;
+
+            return new AsyncInvocation(invocation, new Mailbox(observes.queue(), observes.overflow()));
+        }
+
+        /**
+         * Marks the invocation with its routing key: the method's own, else the one the observer
+         * was added with. Unkeyed invocations are returned as they are.
+         */
+        private Invocation keyed(final Observes observes, final Object key, final Invocation invocation) {
+            final String declared = observes.key();
+            final Object routing = declared.isEmpty() ? key : declared;
+
+            return routing == null ? invocation : new KeyedInvocation(routing, invocation);
+        }
+
+        private void mailboxes(final List<MailboxStatus> statuses) {
+            for (final Map<Class, Invocation> phase : Arrays.asList(before, methods, after)) {
+                for (Invocation invocation : phase.values()) {
+                    if (invocation instanceof KeyedInvocation) invocation = ((KeyedInvocation) invocation).invocation;
+                    if (!(invocation instanceof AsyncInvocation)) continue;
+
+                    final AsyncInvocation async = (AsyncInvocation) invocation;
+                    final MethodInvocation method = (MethodInvocation) async.invocation;
+                    final Mailbox mailbox = async.mailbox;
+                    statuses.add(new MailboxStatus(method.getObserver(), method.getMethod(), mailbox.getCapacity(),
+                            mailbox.getDepth(), mailbox.getDropped(), mailbox.getOverflow()));
                 }
             }
-            return false;
         }
 
         @Override
@@ -451,12 +1445,14 @@ public class ObserverManager {
 
             final Observer observer1 = (Observer) o;
 
-            return observer.equals(observer1.observer);
+            final Object observer = get();
+            return observer != null && observer.equals(observer1.get());
         }
 
         @Override
         public int hashCode() {
-            return observer.hashCode();
+            final Object observer = get();
+            return observer == null ? System.identityHashCode(this) : observer.hashCode();
         }
     }
 
@@ -465,25 +1461,19 @@ public class ObserverManager {
         void invoke(Object event);
 
         default Invocation andThen(Invocation after) {
-            if (after == IGNORE) return this;
-
-            final InvocationList list = new InvocationList();
-            list.add(this);
-            list.add(after);
-            return list;
+            return InvocationList.of(this, after);
         }
 
     }
 
 
+    /**
+     * The chain of an event type nobody observes. Firing such an event never invokes it; the
+     * ObserverManager counts the event in Unobserved instead.
+     */
     private static final Invocation IGNORE = new Invocation() {
         @Override
         public void invoke(final Object event) {
-            final String name = event.getClass().getName();
-            if (!name.startsWith("org.tomitribe.pixie.event.") && !(event instanceof ObserverNotFound)) {
-                ObserverManager.logger().info("No observers for event " + name); // not really an error, just informational
-                // doFire(new ObserverNotFound(event));
-            }
         }
 
         @Override
@@ -496,36 +1486,96 @@ public class ObserverManager {
     public class MethodInvocation implements Invocation {
         private final Method method;
         private final Object observer;
+        private final Invokers.Invoker invoker;
 
         public MethodInvocation(final Method method, final Object observer) {
+            this(method, observer, strategy.bind(method));
+        }
+
+        private MethodInvocation(final Method method, final Object observer, final Invokers.Invoker invoker) {
             this.method = method;
             this.observer = observer;
+            this.invoker = invoker;
+        }
+
+        public Method getMethod() {
+            return method;
+        }
+
+        public Object getObserver() {
+            return observer;
         }
 
         @Override
         public void invoke(final Object event) {
+            deliver(event);
+        }
+
+        /**
+         * Invokes the observer, reporting any failure as usual. Returns false if it failed.
+         */
+        boolean deliver(final Object event) {
+            final Object flight = FlightEvents.beginObserver();
             try {
-                method.invoke(observer, event);
+                return call(event);
+            } finally {
+                FlightEvents.endObserver(flight, method, resolveEvent(event).getClass());
+            }
+        }
 
-            } catch (final InvocationTargetException e) {
-                if (!seen.get().add(this)) {
-                    return;
-                }
+        private boolean call(final Object event) {
+            final Object observer = getObserver();
+            if (observer == null) {
+                // weakly held and collected; stop dispatching to it
+                expunge();
+                return true;
+            }
 
-                final Throwable t = e.getTargetException() == null ? e : e.getTargetException();
+            try {
+                invoker.invoke(observer, event);
+                return true;
 
-                if (!(resolveEvent(event) instanceof ObserverFailed)) {
-                    doFire(new ObserverFailed(observer, method, event, t));
-                }
+            } catch (final Throwable t) {
+                return failed(event, t);
+            }
+        }
 
-                if (t instanceof InvocationTargetException && t.getCause() != null) {
-                    ObserverManager.logger().log(Level.SEVERE, "error invoking " + observer, t.getCause());
-                } else {
-                    ObserverManager.logger().log(Level.SEVERE, "error invoking " + observer, t);
-                }
-            } catch (final IllegalAccessException e) {
+        /**
+         * Reports what the observer threw for this event, unless it was already reported in the
+         * current fire. Always returns false.
+         */
+        boolean failed(final Object event, final Throwable t) {
+            if (t instanceof NotInvokableObserverException) {
                 ObserverManager.logger().log(Level.SEVERE, method + " can't be invoked, check it is public");
-                throw new NotInvokableObserverException(method + " can't be invoked, check it is public");
+                throw (NotInvokableObserverException) t;
+            }
+
+            // Invoked outside any fire (an async observer on its pool thread), this failure
+            // is its own outermost scope
+            final int[] guard = ObserverManager.guard.get();
+            guard[DEPTH]++;
+            guard[FAILED] = 1;
+            try {
+                if (seen.get().add(this)) report(event, t);
+            } finally {
+                exit(guard);
+            }
+            return false;
+        }
+
+        private void report(final Object event, final Throwable t) {
+            final Object observer = getObserver();
+            if (!(resolveEvent(event) instanceof ObserverFailed)) {
+                doFire(new ObserverFailed(observer, method, event, t));
+            }
+
+            final Logger logger = ObserverManager.logger();
+            if (!logger.isLoggable(Level.SEVERE)) return;
+
+            if (t instanceof InvocationTargetException && t.getCause() != null) {
+                logger.log(Level.SEVERE, "error invoking " + observer, t.getCause());
+            } else {
+                logger.log(Level.SEVERE, "error invoking " + observer, t);
             }
         }
 
@@ -536,7 +1586,7 @@ public class ObserverManager {
     }
 
     // done lazily since this class is used in SystemInstance
-    private static Logger logger() {
+    static Logger logger() {
         Logger value = LOGGER.get();
         if (value == null) {
             value = Logger.getLogger(ObserverManager.class.getName());
@@ -555,45 +1605,345 @@ public class ObserverManager {
         }
     }
 
-    private final class AfterInvocation extends MethodInvocation {
+    /**
+     * The MethodInvocation of a weakly held observer, which reaches it only through the
+     * wrapper's WeakReference.
+     */
+    private final class WeakMethodInvocation extends MethodInvocation {
+        private final WeakObserver reference;
+
+        private WeakMethodInvocation(final Method method, final WeakObserver reference, final Invokers.Invoker invoker) {
+            super(method, null, invoker);
+            this.reference = reference;
+        }
+
+        @Override
+        public Object getObserver() {
+            return reference.get();
+        }
+    }
+
+    private static final class WeakObserver extends WeakReference<Object> {
+        private final Observer wrapper;
 
-        private AfterInvocation(final Method method, final Object observer) {
-            super(method, observer);
+        private WeakObserver(final Object observer, final ReferenceQueue<Object> queue, final Observer wrapper) {
+            super(observer, queue);
+            this.wrapper = wrapper;
+        }
+    }
+
+    /**
+     * An observer method registered with a routing key. Registry takes these out of the phase
+     * list and indexes them by key in a RoutedInvocation; invoked directly, it just delivers.
+     */
+    private static final class KeyedInvocation implements Invocation {
+        private final Object key;
+        private final Invocation invocation;
+
+        private KeyedInvocation(final Object key, final Invocation invocation) {
+            this.key = key;
+            this.invocation = invocation;
         }
 
         @Override
         public void invoke(final Object event) {
-            super.invoke(new AfterEvent() {
-                @Override
-                public Object getEvent() {
-                    return event;
-                }
+            invocation.invoke(event);
+        }
 
-                public String toString() {
-                    return "AfterEvent{} " + event;
-                }
-            });
+        @Override
+        public String toString() {
+            return "keyed " + key + " " + invocation;
+        }
+    }
+
+    /**
+     * The keyed observers of one phase of one event type, indexed by key. Each event's key is
+     * computed once and only the observers registered under it are called.
+     */
+    private final class RoutedInvocation implements Invocation {
+        private final Function<Object, ?> key;
+        private final Map<Object, Invocation> index = new HashMap<>();
+
+        private RoutedInvocation(final Function<Object, ?> key, final Map<Object, List<Invocation>> keyed) {
+            this.key = key;
+            for (final Map.Entry<Object, List<Invocation>> entry : keyed.entrySet()) {
+                index.put(entry.getKey(), InvocationList.of(entry.getValue()));
+            }
+        }
+
+        @Override
+        public void invoke(final Object event) {
+            final Invocation invocation = index.get(key.apply(resolveEvent(event)));
+            if (invocation != null) invocation.invoke(event);
+        }
+
+        @Override
+        public String toString() {
+            return "routed " + index;
+        }
+    }
+
+    /**
+     * An @Observes long method. The value reaches the observer unboxed, and is boxed only if the
+     * observer throws, for the ObserverFailed. Finding the observer, which may be weakly held,
+     * and reporting its failures are left to the MethodInvocation it wraps.
+     */
+    private final class LongInvocation {
+        private final MethodInvocation method;
+        private final Invokers.LongInvoker invoker;
+
+        private LongInvocation(final MethodInvocation method, final Invokers.LongInvoker invoker) {
+            this.method = method;
+            this.invoker = invoker;
+        }
+
+        private void invoke(final long value) {
+            final Object flight = FlightEvents.beginObserver();
+            try {
+                call(value);
+            } finally {
+                FlightEvents.endObserver(flight, method.getMethod(), long.class);
+            }
+        }
+
+        private void call(final long value) {
+            final Object observer = method.getObserver();
+            if (observer == null) {
+                expunge();
+                return;
+            }
+
+            try {
+                invoker.invoke(observer, value);
+            } catch (final Throwable t) {
+                method.failed(value, t);
+            }
+        }
+
+        @Override
+        public String toString() {
+            return method.toString();
+        }
+    }
+
+    /**
+     * An @Observes double method, called as LongInvocation calls a long one.
+     */
+    private final class DoubleInvocation {
+        private final MethodInvocation method;
+        private final Invokers.DoubleInvoker invoker;
+
+        private DoubleInvocation(final MethodInvocation method, final Invokers.DoubleInvoker invoker) {
+            this.method = method;
+            this.invoker = invoker;
+        }
+
+        private void invoke(final double value) {
+            final Object flight = FlightEvents.beginObserver();
+            try {
+                call(value);
+            } finally {
+                FlightEvents.endObserver(flight, method.getMethod(), double.class);
+            }
+        }
+
+        private void call(final double value) {
+            final Object observer = method.getObserver();
+            if (observer == null) {
+                expunge();
+                return;
+            }
+
+            try {
+                invoker.invoke(observer, value);
+            } catch (final Throwable t) {
+                method.failed(value, t);
+            }
+        }
+
+        @Override
+        public String toString() {
+            return method.toString();
         }
     }
 
-    private final class BeforeInvocation extends MethodInvocation {
+    /**
+     * The Invoke phase of a parallel event type. Every invocation but the first is forked to
+     * the pool, the first runs on the calling thread, and then each fork is joined, so invoke
+     * returns only when they have all finished. Observer failures are reported by the
+     * invocations themselves; anything else thrown is rethrown here, but only after every
+     * fork is done, so nothing is still running on the event when the caller sees it.
+     */
+    private static final class ParallelInvocation implements Invocation {
+        private final Invocation[] invocations;
+        private final ForkJoinPool pool;
+
+        private ParallelInvocation(final Invocation[] invocations, final ForkJoinPool pool) {
+            this.invocations = invocations;
+            this.pool = pool;
+        }
+
+        private static Invocation of(final Invocation invocation, final ForkJoinPool pool) {
+            if (pool == null) return invocation;
 
-        private BeforeInvocation(final Method method, final Object observer) {
-            super(method, observer);
+            final List<Invocation> flat = new ArrayList<>();
+            InvocationList.flatten(invocation, flat);
+
+            // nothing to run alongside a single observer
+            if (flat.size() < 2) return invocation;
+
+            return new ParallelInvocation(flat.toArray(new Invocation[0]), pool);
         }
 
         @Override
         public void invoke(final Object event) {
-            super.invoke(new BeforeEvent() {
-                @Override
-                public Object getEvent() {
-                    return event;
-                }
+            final Invocation[] invocations = this.invocations;
+            final ForkJoinTask<?>[] forks = new ForkJoinTask<?>[invocations.length - 1];
+
+            // a worker of our own pool pushes onto its own deque, where idle workers steal
+            final boolean worker = ForkJoinTask.getPool() == pool;
 
-                public String toString() {
-                    return "BeforeEvent{} " + event;
+            for (int i = 1; i < invocations.length; i++) {
+                final Invocation invocation = invocations[i];
+                final ForkJoinTask<?> fork = ForkJoinTask.adapt(() -> invocation.invoke(event));
+                if (worker) {
+                    fork.fork();
+                } else {
+                    pool.execute(fork);
                 }
-            });
+                forks[i - 1] = fork;
+            }
+
+            Throwable thrown = null;
+            try {
+                invocations[0].invoke(event);
+            } catch (final Throwable t) {
+                thrown = t;
+            }
+
+            for (final ForkJoinTask<?> fork : forks) {
+                fork.quietlyJoin();
+                if (thrown == null) thrown = fork.getException();
+            }
+
+            if (thrown instanceof RuntimeException) throw (RuntimeException) thrown;
+            if (thrown instanceof Error) throw (Error) thrown;
+            if (thrown != null) throw new IllegalStateException(thrown);
+        }
+
+        @Override
+        public String toString() {
+            return "parallel " + InvocationList.toString(Arrays.asList(invocations));
+        }
+    }
+
+    /**
+     * Queues the delivery in the observer's mailbox, which feeds it to the observer on a pool
+     * thread where any failure is reported. A full mailbox applies its overflow policy here, on
+     * the firing thread, which is how backpressure reaches whoever fired the event.
+     */
+    private final class AsyncInvocation implements Invocation {
+        private final Invocation invocation;
+        private final Mailbox mailbox;
+
+        private AsyncInvocation(final Invocation invocation, final Mailbox mailbox) {
+            this.invocation = invocation;
+            this.mailbox = mailbox;
+        }
+
+        @Override
+        public void invoke(final Object event) {
+            mailbox.deliver(() -> invocation.invoke(event), executor);
+        }
+
+        @Override
+        public String toString() {
+            return "async " + invocation;
+        }
+    }
+
+    /**
+     * Wraps the event in a single AfterEvent shared by every After observer of the event, rather
+     * than one per observer. The wrapper is immutable, so it is safe to hand to observers that
+     * keep it or that run asynchronously.
+     */
+    private static final class AfterInvocation implements Invocation {
+        private final Invocation invocation;
+
+        private AfterInvocation(final Invocation invocation) {
+            this.invocation = invocation;
+        }
+
+        private static Invocation of(final Invocation invocation) {
+            return invocation == IGNORE ? IGNORE : new AfterInvocation(invocation);
+        }
+
+        @Override
+        public void invoke(final Object event) {
+            invocation.invoke(new After(event));
+        }
+
+        @Override
+        public String toString() {
+            return invocation.toString();
+        }
+    }
+
+    private static final class BeforeInvocation implements Invocation {
+        private final Invocation invocation;
+
+        private BeforeInvocation(final Invocation invocation) {
+            this.invocation = invocation;
+        }
+
+        private static Invocation of(final Invocation invocation) {
+            return invocation == IGNORE ? IGNORE : new BeforeInvocation(invocation);
+        }
+
+        @Override
+        public void invoke(final Object event) {
+            invocation.invoke(new Before(event));
+        }
+
+        @Override
+        public String toString() {
+            return invocation.toString();
+        }
+    }
+
+    private static final class After implements AfterEvent<Object> {
+        private final Object event;
+
+        private After(final Object event) {
+            this.event = event;
+        }
+
+        @Override
+        public Object getEvent() {
+            return event;
+        }
+
+        @Override
+        public String toString() {
+            return "AfterEvent{} " + event;
+        }
+    }
+
+    private static final class Before implements BeforeEvent<Object> {
+        private final Object event;
+
+        private Before(final Object event) {
+            this.event = event;
+        }
+
+        @Override
+        public Object getEvent() {
+            return event;
+        }
+
+        @Override
+        public String toString() {
+            return "BeforeEvent{} " + event;
         }
     }
 
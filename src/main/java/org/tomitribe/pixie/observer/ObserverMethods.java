@@ -0,0 +1,383 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.tomitribe.pixie.observer;
+
+import org.tomitribe.pixie.Observes;
+import org.tomitribe.pixie.event.AfterEvent;
+import org.tomitribe.pixie.event.BeforeEvent;
+
+import java.lang.annotation.Annotation;
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+import java.lang.reflect.ParameterizedType;
+import java.lang.reflect.Type;
+import java.lang.reflect.WildcardType;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * The @Observes methods of a class, found and validated once and kept in a ClassValue. Every
+ * instance of the class registered afterwards is bound to this metadata without looking at its
+ * methods again, and a class with no observer methods is recognised with one ClassValue read.
+ *
+ * An invalid observer class is not cached: ClassValue does not keep a computation that threw,
+ * so each registration reports the same IllegalArgumentException.
+ *
+ * A class compiled with pixie-processor has a generated ObserverDispatcher. Its methods were
+ * validated by the processor, so they are taken from the dispatcher, looked up by name, and each
+ * is given an Invoker that calls the dispatcher. If the dispatcher no longer matches the class,
+ * the class is scanned as if it had none.
+ *
+ * Methods observing a long or double are kept apart, as values. They are not dispatched by event
+ * class, so a generated dispatcher only names them, and they are bound without an Invoker.
+ */
+final class ObserverMethods {
+
+    private static final ClassValue<ObserverMethods> CACHE = new ClassValue<ObserverMethods>() {
+        @Override
+        protected ObserverMethods computeValue(final Class<?> type) {
+            return create(type);
+        }
+    };
+
+    private final List<Observed> before;
+    private final List<Observed> invoke;
+    private final List<Observed> after;
+    private final List<Observed> values;
+
+    public static ObserverMethods of(final Class<?> type) {
+        return CACHE.get(type);
+    }
+
+    private ObserverMethods(final List<Observed> before, final List<Observed> invoke, final List<Observed> after,
+                            final List<Observed> values) {
+        this.before = Collections.unmodifiableList(before);
+        this.invoke = Collections.unmodifiableList(invoke);
+        this.after = Collections.unmodifiableList(after);
+        this.values = Collections.unmodifiableList(values);
+    }
+
+    private static ObserverMethods create(final Class<?> clazz) {
+        final ObserverDispatcher dispatcher = dispatcher(clazz);
+        if (dispatcher != null) {
+            try {
+                return generated(clazz, dispatcher);
+            } catch (final NoSuchMethodException | RuntimeException e) {
+                // compiled against an older version of the class; fall through and scan it
+            }
+        }
+
+        return scan(clazz);
+    }
+
+    private static ObserverDispatcher dispatcher(final Class<?> clazz) {
+        final ClassLoader loader = clazz.getClassLoader();
+        if (loader == null) return null;
+
+        try {
+            final Class<?> type = Class.forName(clazz.getName() + ObserverDispatcher.SUFFIX, true, loader);
+            if (!ObserverDispatcher.class.isAssignableFrom(type)) return null;
+
+            return (ObserverDispatcher) type.getConstructor().newInstance();
+        } catch (final ReflectiveOperationException | LinkageError e) {
+            return null;
+        }
+    }
+
+    private static ObserverMethods generated(final Class<?> clazz, final ObserverDispatcher dispatcher)
+            throws NoSuchMethodException {
+
+        final List<Observed> before = new ArrayList<>();
+        final List<Observed> invoke = new ArrayList<>();
+        final List<Observed> after = new ArrayList<>();
+
+        final String[] names = dispatcher.methods();
+        final Class<?>[] parameters = dispatcher.parameters();
+        final Class<?>[] events = dispatcher.events();
+
+        for (int i = 0; i < names.length; i++) {
+            final Method method = clazz.getMethod(names[i], parameters[i]);
+            final Observes observes = getObserves(method);
+            if (observes == null) throw new IllegalStateException("Not an @Observes method " + method);
+
+            final int index = i;
+            final Observed observed = new Observed(events[i], method, observes,
+                    (observer, event) -> dispatcher.dispatch(index, observer, event));
+
+            if (AfterEvent.class.equals(parameters[i])) {
+                after.add(observed);
+            } else if (BeforeEvent.class.equals(parameters[i])) {
+                before.add(observed);
+            } else {
+                invoke.add(observed);
+            }
+        }
+
+        final List<Observed> values = new ArrayList<>();
+        final Map<Class, Method> valueOwners = new HashMap<>();
+
+        final String[] valueNames = dispatcher.values();
+        final Class<?>[] valueTypes = dispatcher.valueTypes();
+
+        for (int i = 0; i < valueNames.length; i++) {
+            final Method method = clazz.getMethod(valueNames[i], valueTypes[i]);
+            final Observes observes = getObserves(method);
+            if (observes == null) throw new IllegalStateException("Not an @Observes method " + method);
+
+            value(method, observes, valueOwners, values);
+        }
+
+        return new ObserverMethods(before, invoke, after, values);
+    }
+
+    private static ObserverMethods scan(final Class<?> clazz) {
+        final List<Observed> before = new ArrayList<>();
+        final List<Observed> invoke = new ArrayList<>();
+        final List<Observed> after = new ArrayList<>();
+        final List<Observed> values = new ArrayList<>();
+
+        // First method claiming each observed type, per phase - used to reject duplicates.
+        final Map<Class, Method> beforeOwners = new HashMap<>();
+        final Map<Class, Method> methodOwners = new HashMap<>();
+        final Map<Class, Method> afterOwners = new HashMap<>();
+        final Map<Class, Method> valueOwners = new HashMap<>();
+
+        for (final Method method : getMethods(clazz)) {
+            final Observes observes = getObserves(method);
+            if (observes == null) {
+                continue;
+            }
+
+            if (method.getParameterTypes().length > 1) {
+                throw new IllegalArgumentException("@Observes method must have only 1 parameter: " + method);
+            }
+
+            if (Modifier.isAbstract(method.getModifiers())) {
+                throw new IllegalArgumentException("@Observes method must not be abstract: " + method);
+            }
+
+            if (Modifier.isStatic(method.getModifiers())) {
+                throw new IllegalArgumentException("@Observes method must not be static: " + method);
+            }
+
+            if (!Modifier.isPublic(method.getModifiers())) {
+                throw new IllegalArgumentException("@Observes method must be public: " + method);
+            }
+
+            final Class<?> type = method.getParameterTypes()[0];
+
+            if (AfterEvent.class.equals(type)) {
+
+                final Class parameterClass = getParameterClass(method);
+                checkUnique(afterOwners, parameterClass, method);
+                after.add(new Observed(parameterClass, method, observes, null));
+
+            } else if (BeforeEvent.class.equals(type)) {
+
+                final Class parameterClass = getParameterClass(method);
+                checkUnique(beforeOwners, parameterClass, method);
+                before.add(new Observed(parameterClass, method, observes, null));
+
+            } else if (isValue(type)) {
+
+                value(method, observes, valueOwners, values);
+
+            } else {
+
+                validate(method, type);
+                checkUnique(methodOwners, type, method);
+                invoke.add(new Observed(type, method, observes, null));
+
+            }
+        }
+
+        return new ObserverMethods(before, invoke, after, values);
+    }
+
+    private static boolean isValue(final Class<?> type) {
+        return long.class.equals(type) || double.class.equals(type);
+    }
+
+    /**
+     * A long or double method. Its value is handed over unboxed, which neither a mailbox nor a
+     * routing key could do, so it may be neither async nor keyed.
+     */
+    private static void value(final Method method, final Observes observes, final Map<Class, Method> owners,
+                              final List<Observed> values) {
+        if (Modifier.isStatic(method.getModifiers())) {
+            throw new IllegalArgumentException("@Observes method must not be static: " + method);
+        }
+
+        if (!Modifier.isPublic(method.getModifiers())) {
+            throw new IllegalArgumentException("@Observes method must be public: " + method);
+        }
+
+        if (observes.async()) {
+            throw new IllegalArgumentException("@Observes long and double methods cannot be async: " + method);
+        }
+
+        if (!observes.key().isEmpty()) {
+            throw new IllegalArgumentException("@Observes long and double methods cannot be keyed: " + method);
+        }
+
+        final Class<?> type = method.getParameterTypes()[0];
+        checkUnique(owners, type, method);
+        values.add(new Observed(type, method, observes, null));
+    }
+
+    public boolean isEmpty() {
+        return before.isEmpty() && invoke.isEmpty() && after.isEmpty() && values.isEmpty();
+    }
+
+    public List<Observed> getBefore() {
+        return before;
+    }
+
+    public List<Observed> getInvoke() {
+        return invoke;
+    }
+
+    public List<Observed> getAfter() {
+        return after;
+    }
+
+    /**
+     * The methods observing a long or double, at most one of each.
+     */
+    public List<Observed> getValues() {
+        return values;
+    }
+
+    /**
+     * One @Observes method and the event type it observes; for BeforeEvent and AfterEvent
+     * observers, the type argument.
+     */
+    static final class Observed {
+        private final Class type;
+        private final Method method;
+        private final Observes observes;
+        private final Invokers.Invoker invoker;
+
+        private Observed(final Class type, final Method method, final Observes observes, final Invokers.Invoker invoker) {
+            this.type = type;
+            this.method = method;
+            this.observes = observes;
+            this.invoker = invoker;
+        }
+
+        public Class getType() {
+            return type;
+        }
+
+        public Method getMethod() {
+            return method;
+        }
+
+        public Observes getObserves() {
+            return observes;
+        }
+
+        /**
+         * The generated dispatcher's invoker for this method, or null if the class has none.
+         */
+        public Invokers.Invoker getInvoker() {
+            return invoker;
+        }
+    }
+
+    private static Set<Method> getMethods(final Class<?> clazz) {
+        final Set<Method> methods = new HashSet<>();
+        methods.addAll(Arrays.asList(clazz.getMethods()));
+        methods.addAll(Arrays.asList(clazz.getDeclaredMethods()));
+        return methods;
+    }
+
+    private static Observes getObserves(final Method method) {
+        for (final Annotation[] annotations : method.getParameterAnnotations()) {
+            for (final Annotation annotation : annotations) {
+                if (annotation.annotationType().equals(Observes.class)) {
+                    return (Observes) annotation;
+                }
+            }
+        }
+        return null;
+    }
+
+    private static Class getParameterClass(final Method method) {
+
+        final Type[] genericParameterTypes = method.getGenericParameterTypes();
+
+        final Type generic = genericParameterTypes[0];
+
+        if (!(generic instanceof ParameterizedType)) {
+            final Class<?> event = method.getParameterTypes()[0];
+            throw new IllegalArgumentException("@Observes " + event.getSimpleName() + " missing generic type: " + method);
+        }
+
+        final ParameterizedType parameterized = ParameterizedType.class.cast(generic);
+
+        final Type type = parameterized.getActualTypeArguments()[0];
+
+        final Class clazz;
+
+        if (type instanceof Class) {
+
+            clazz = Class.class.cast(type);
+
+        } else if (type instanceof WildcardType) {
+
+            clazz = Object.class;
+
+        } else {
+
+            final Class<?> event = method.getParameterTypes()[0];
+            throw new IllegalArgumentException("@Observes " + event.getSimpleName() +
+                    " unsupported generic type: " + type.getClass().getSimpleName() +
+                    "  " + method);
+        }
+
+        validate(method, clazz);
+
+        return clazz;
+    }
+
+    private static void checkUnique(final Map<Class, Method> owners, final Class type, final Method method) {
+        final Method existing = owners.put(type, method);
+        if (existing != null) {
+            throw new IllegalArgumentException("Duplicate @Observes for type " + type.getName()
+                    + ": " + method + " conflicts with " + existing
+                    + ". An observer may declare at most one @Observes method per type; remove or merge one.");
+        }
+    }
+
+    private static void validate(final Method method, final Class<?> type) {
+        if (type.isAnnotation()) {
+            throw new IllegalArgumentException("@Observes method parameter must not be an annotation: " + method.toString());
+        }
+
+        if (type.isArray()) {
+            throw new IllegalArgumentException("@Observes method parameter must be a concrete class (not an array): " + method.toString());
+        }
+
+        if (type.isPrimitive()) {
+            throw new IllegalArgumentException("@Observes method parameter must be a concrete class, long or double (not another primitive): " + method.toString());
+        }
+    }
+}
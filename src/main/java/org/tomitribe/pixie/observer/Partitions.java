@@ -0,0 +1,124 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.tomitribe.pixie.observer;
+
+import java.util.Arrays;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Function;
+
+/**
+ * Which event types are dispatched on partitioned lanes, and the function giving each event's
+ * partition key. An event type is partitioned if it, or any supertype, has a key function; the
+ * most specific one wins, resolved the same way observers are.
+ *
+ * The resolution for each event class is cached in an array indexed by EventTypes id, so a
+ * fire of an unpartitioned type costs one array read once there are partitions at all.
+ *
+ * Once shut down, partitioned events are delivered on the thread that fired them, as if they
+ * were not partitioned, rather than queued to lanes that will never run them.
+ */
+class Partitions {
+
+    private static final Function<Object, Object> NONE = event -> null;
+
+    private final Map<Class<?>, Function<Object, ?>> keys = new ConcurrentHashMap<>();
+
+    private volatile Function<Object, ?>[] resolved = newTable(0);
+
+    private int lanes;
+    private int capacity;
+    private volatile Lanes started;
+    private volatile boolean closed;
+
+    Partitions(final int lanes, final int capacity) {
+        configure(lanes, capacity);
+    }
+
+    public synchronized void configure(final int lanes, final int capacity) {
+        if (started != null) throw new IllegalStateException("Lanes are already running; configure them before the first partitioned fire");
+        if (lanes < 1) throw new IllegalArgumentException("lane count must be at least 1: " + lanes);
+        if (capacity < 1) throw new IllegalArgumentException("lane queue size must be at least 1: " + capacity);
+
+        this.lanes = lanes;
+        this.capacity = capacity;
+    }
+
+    @SuppressWarnings("unchecked")
+    public synchronized void add(final Class<?> type, final Function<?, ?> key) {
+        keys.put(type, (Function<Object, ?>) key);
+        resolved = newTable(0);
+    }
+
+    /**
+     * The key function for this event class, or null if it is not partitioned.
+     */
+    public Function<Object, ?> get(final Class<?> type) {
+        final int id = EventTypes.id(type);
+
+        final Function<Object, ?>[] resolved = this.resolved;
+        final Function<Object, ?> key = id < resolved.length ? resolved[id] : null;
+
+        if (key == null) return resolve(id, type);
+        return key == NONE ? null : key;
+    }
+
+    private synchronized Function<Object, ?> resolve(final int id, final Class<?> type) {
+        final Class<?> match = Resolver.bestMatch(type, keys.keySet());
+        final Function<Object, ?> key = match == null ? NONE : keys.get(match);
+
+        final Function<Object, ?>[] resolved = Arrays.copyOf(this.resolved, Math.max(this.resolved.length, id + 1));
+        resolved[id] = key;
+        this.resolved = resolved;
+
+        return key == NONE ? null : key;
+    }
+
+    public void submit(final Object key, final Runnable dispatch) {
+        final Lanes lanes = lanes();
+        if (lanes == null) {
+            dispatch.run();
+            return;
+        }
+
+        lanes.submit(key, dispatch);
+    }
+
+    /**
+     * The running lanes, started on first use, or null once shut down.
+     */
+    private Lanes lanes() {
+        final Lanes lanes = this.started;
+        if (lanes != null && !closed) return lanes;
+
+        synchronized (this) {
+            if (closed) return null;
+            if (this.started == null) this.started = new Lanes(this.lanes, capacity);
+            return this.started;
+        }
+    }
+
+    public synchronized void shutdown() {
+        if (closed) return;
+
+        closed = true;
+        final Lanes lanes = this.started;
+        if (lanes != null) lanes.shutdown();
+    }
+
+    @SuppressWarnings("unchecked")
+    private static Function<Object, ?>[] newTable(final int size) {
+        return new Function[size];
+    }
+}
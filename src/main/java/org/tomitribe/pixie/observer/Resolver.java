@@ -13,9 +13,12 @@
  */
 package org.tomitribe.pixie.observer;
 
+import java.util.ArrayList;
 import java.util.Collection;
+import java.util.Collections;
+import java.util.HashSet;
 import java.util.List;
-import java.util.function.Function;
+import java.util.Set;
 
 import static java.util.stream.Collectors.toList;
 
@@ -28,6 +31,10 @@ import static java.util.stream.Collectors.toList;
  * it). Two or more incomparable minima (a genuine diamond) -> AmbiguousObserverException: like
  * javac, we refuse to guess.
  *
+ * Supertypes come from a per-class index built once, so selection walks the event's linearized
+ * supertypes and looks each one up among the candidates, rather than testing every candidate
+ * with isAssignableFrom and filtering the matches pairwise.
+ *
  * This works purely on types - the caller supplies the candidate types (e.g. an observer's
  * registered @Observes parameter types) and maps the winner back to a handler. Matching is on
  * erased types only; generic narrowing (e.g. distinguishing Foo&lt;A&gt; from Foo&lt;B&gt;) is
@@ -35,20 +42,46 @@ import static java.util.stream.Collectors.toList;
  */
 public class Resolver {
 
+    /**
+     * Every supertype of a class - itself, its superclasses and all the interfaces they reach -
+     * computed once per class. Held in a ClassValue so the index never keeps a class alive.
+     */
+    private static final ClassValue<Hierarchy> HIERARCHY = new ClassValue<Hierarchy>() {
+        @Override
+        protected Hierarchy computeValue(final Class<?> type) {
+            return new Hierarchy(type);
+        }
+    };
+
     private Resolver() {
     }
 
-    public static Class bestMatch(final Class<?> eventType, final Collection<Class> candidates) {
-        // isAssignableFrom crosses the interface graph for free - that is the whole feature.
-        final List<Class> matches = candidates.stream()
-                .filter(candidate -> candidate.isAssignableFrom(eventType))
-                .collect(toList());
+    public static Class bestMatch(final Class<?> eventType, final Collection<? extends Class> candidates) {
+        if (candidates.isEmpty()) return null;
 
-        if (matches.isEmpty()) return null;
+        // Array covariance is not in the index; isAssignableFrom still knows it
+        if (eventType.isArray() || eventType.isPrimitive()) return bestMatchByAssignability(eventType, candidates);
 
-        final List<Class> minimal = minimal(matches, type -> type);
+        // The linearization lists subtypes before their supertypes, so a candidate is one of
+        // the most specific exactly when no minimum found before it is one of its subtypes.
+        List<Class> minimal = null;
+        Class first = null;
 
-        if (minimal.size() == 1) return minimal.get(0);
+        for (final Class<?> type : HIERARCHY.get(eventType).linearized) {
+            if (!candidates.contains(type)) continue;
+
+            if (first == null) {
+                first = type;
+            } else if (!HIERARCHY.get(first).supertypes.contains(type) && !isSupertypeOfAny(type, minimal)) {
+                if (minimal == null) {
+                    minimal = new ArrayList<>();
+                    minimal.add(first);
+                }
+                minimal.add(type);
+            }
+        }
+
+        if (minimal == null) return first;
 
         throw new AmbiguousObserverException(eventType, minimal); // >= 2 incomparable minima
     }
@@ -57,22 +90,64 @@ public class Resolver {
         throw new UnsupportedOperationException(); // for future use (every-match mode)
     }
 
+    private static boolean isSupertypeOfAny(final Class<?> type, final List<Class> minimal) {
+        if (minimal == null) return false;
+
+        for (final Class<?> m : minimal) {
+            if (HIERARCHY.get(m).supertypes.contains(type)) return true;
+        }
+        return false;
+    }
+
+    private static Class bestMatchByAssignability(final Class<?> eventType, final Collection<? extends Class> candidates) {
+        final List<Class> matches = candidates.stream()
+                .filter(candidate -> candidate.isAssignableFrom(eventType))
+                .<Class>map(candidate -> candidate)
+                .collect(toList());
+
+        if (matches.isEmpty()) return null;
+
+        final List<Class> minimal = matches.stream()
+                .filter(k -> matches.stream().noneMatch(m -> !k.equals(m) && k.isAssignableFrom(m)))
+                .collect(toList());
+
+        if (minimal.size() == 1) return minimal.get(0);
+
+        throw new AmbiguousObserverException(eventType, minimal);
+    }
+
     /**
-     * Reduce candidates to the most-specific (the minimal elements in the subtype order): drop
-     * any candidate whose type is a STRICT supertype of another candidate's. The strict check
-     * (types not equal) matters - without it two candidates sharing a type would each "dominate"
-     * the other and both fall out, yielding an empty set rather than a real tie.
-     *
-     * For a single-inheritance class chain this leaves exactly the most-derived class. For an
-     * interface lattice it leaves one element if a unique minimum exists, or several incomparable
-     * minima (a genuine diamond) for the caller to treat as ambiguous.
+     * A class's supertypes twice over: as a set, for "is X a supertype" lookups, and linearized
+     * so that every type comes before all of its own supertypes (a reverse post-order walk of
+     * the superclass and interface edges). Interfaces get Object appended, as isAssignableFrom
+     * treats Object as the supertype of everything.
      */
-    private static <T> List<T> minimal(final List<T> candidates, final Function<T, Class<?>> typeOf) {
-        return candidates.stream()
-                .filter(k -> candidates.stream().noneMatch(m -> m != k
-                        && !typeOf.apply(k).equals(typeOf.apply(m))
-                        && typeOf.apply(k).isAssignableFrom(typeOf.apply(m))))
-                .collect(toList());
+    private static class Hierarchy {
+        private final Class<?>[] linearized;
+        private final Set<Class<?>> supertypes;
+
+        private Hierarchy(final Class<?> type) {
+            final Set<Class<?>> visited = new HashSet<>();
+            final List<Class<?>> postOrder = new ArrayList<>();
+            visit(type, visited, postOrder);
+
+            Collections.reverse(postOrder);
+            if (!visited.contains(Object.class)) postOrder.add(Object.class);
+
+            this.linearized = postOrder.toArray(new Class<?>[0]);
+            this.supertypes = new HashSet<>(postOrder);
+        }
+
+        private static void visit(final Class<?> type, final Set<Class<?>> visited, final List<Class<?>> postOrder) {
+            if (!visited.add(type)) return;
+
+            if (type.getSuperclass() != null) visit(type.getSuperclass(), visited, postOrder);
+            for (final Class<?> anInterface : type.getInterfaces()) {
+                visit(anInterface, visited, postOrder);
+            }
+
+            postOrder.add(type);
+        }
     }
 
     public static class AmbiguousObserverException extends RuntimeException {
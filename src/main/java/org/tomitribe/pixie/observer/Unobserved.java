@@ -0,0 +1,130 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.tomitribe.pixie.observer;
+
+import org.tomitribe.pixie.event.ObserverNotFound;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Counts events fired with no observers, per event type.
+ *
+ * Firing such an event used to log on every call, turning a no-op dispatch into a synchronous
+ * logging call. Now each fire only bumps a LongAdder; the log line is written the first time a
+ * type goes unobserved and, if an interval is set, at most once per interval after that.
+ *
+ * Counters live in an array indexed by EventTypes id, like the dispatch table, so they hold no
+ * reference to the event class. Pixie's own events are expected to go unobserved and are
+ * neither counted nor logged.
+ */
+class Unobserved {
+
+    private static final Counter SILENT = new Counter();
+
+    private static final long NEVER = Long.MIN_VALUE;
+
+    private volatile Counter[] counters = new Counter[0];
+
+    private volatile long interval;
+
+    public void record(final Class<?> type) {
+        final int id = EventTypes.id(type);
+
+        final Counter[] counters = this.counters;
+        final Counter counter = id < counters.length && counters[id] != null ? counters[id] : create(id, type);
+
+        if (counter == SILENT) return;
+
+        counter.count.increment();
+
+        final long logged = counter.logged.get();
+        if (logged == NEVER) {
+            if (counter.logged.compareAndSet(NEVER, System.nanoTime())) log(type, 1);
+            return;
+        }
+
+        final long interval = this.interval;
+        if (interval > 0) {
+            final long now = System.nanoTime();
+            if (now - logged >= interval && counter.logged.compareAndSet(logged, now)) {
+                log(type, counter.count.sum());
+            }
+        }
+    }
+
+    private synchronized Counter create(final int id, final Class<?> type) {
+        Counter[] counters = this.counters;
+        if (id < counters.length && counters[id] != null) return counters[id];
+
+        final Counter counter = isPixieEvent(type) ? SILENT : new Counter();
+
+        counters = Arrays.copyOf(counters, Math.max(counters.length, id + 1));
+        counters[id] = counter;
+        this.counters = counters;
+
+        return counter;
+    }
+
+    /**
+     * How often an event type that stays unobserved is logged again, after the first time.
+     * Zero, the default, logs each type once.
+     */
+    public void setInterval(final long interval, final TimeUnit unit) {
+        if (interval < 0) throw new IllegalArgumentException("interval cannot be negative");
+        this.interval = unit.toNanos(interval);
+    }
+
+    /**
+     * Every event type fired with no observers so far, and how many times, in the order the
+     * types were first seen. Types since unloaded are left out.
+     */
+    public Map<Class<?>, Long> snapshot() {
+        final Map<Class<?>, Long> snapshot = new LinkedHashMap<>();
+
+        final Counter[] counters = this.counters;
+        for (int id = 0; id < counters.length; id++) {
+            final Counter counter = counters[id];
+            if (counter == null || counter == SILENT) continue;
+
+            final Class<?> type = EventTypes.type(id);
+            if (type != null) snapshot.put(type, counter.count.sum());
+        }
+
+        return Collections.unmodifiableMap(snapshot);
+    }
+
+    private static boolean isPixieEvent(final Class<?> type) {
+        return type.getName().startsWith("org.tomitribe.pixie.event.") || ObserverNotFound.class.isAssignableFrom(type);
+    }
+
+    private static void log(final Class<?> type, final long count) {
+        // not really an error, just informational
+        if (count == 1) {
+            ObserverManager.logger().info("No observers for event " + type.getName());
+        } else {
+            ObserverManager.logger().info("No observers for event " + type.getName() + " (fired " + count + " times)");
+        }
+    }
+
+    private static class Counter {
+        private final LongAdder count = new LongAdder();
+        private final AtomicLong logged = new AtomicLong(NEVER);
+    }
+}
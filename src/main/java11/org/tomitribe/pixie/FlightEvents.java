@@ -0,0 +1,79 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.tomitribe.pixie;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * Records component construction as JFR events.  Components are built once,
+ * at load, so unlike dispatch this needs no gate beyond the event's own
+ * isEnabled check.
+ */
+final class FlightEvents {
+
+    private FlightEvents() {
+    }
+
+    static Object beginConstruction() {
+        final Construction construction = new Construction();
+        if (!construction.isEnabled()) return null;
+
+        construction.begin();
+        return construction;
+    }
+
+    static void endConstruction(final Object construction, final System.Declaration<?> declaration) {
+        if (construction == null) return;
+
+        final Construction event = (Construction) construction;
+        event.end();
+        if (event.shouldCommit()) {
+            event.componentClass = declaration.getClazz();
+            event.name = declaration.getName();
+            event.producer = producer(declaration.getProducer());
+            event.references = declaration.getReferences().size();
+            event.commit();
+        }
+    }
+
+    private static String producer(final System.Producer<?> producer) {
+        if (producer instanceof System.Declaration.FactoryMethodProducer) return "factory";
+        if (producer instanceof System.Declaration.BuilderProducer) return "builder";
+        return "constructor";
+    }
+
+    @Name("org.tomitribe.pixie.ComponentConstruction")
+    @Label("Component Construction")
+    @Description("A component declaration built by its constructor, @Factory or @Builder")
+    @Category({"Pixie", "Components"})
+    @StackTrace(false)
+    static class Construction extends Event {
+        @Label("Component Class")
+        Class<?> componentClass;
+
+        @Label("Name")
+        String name;
+
+        @Label("Producer")
+        String producer;
+
+        @Label("Injected References")
+        int references;
+    }
+}
@@ -0,0 +1,108 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.tomitribe.pixie.observer;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+import jdk.jfr.Threshold;
+
+import java.lang.reflect.Method;
+
+/**
+ * Records event dispatch as JFR events. Nothing is allocated unless a recording is running and
+ * has the event enabled; the check is a volatile read kept up to date by Recordings.
+ */
+final class FlightEvents {
+
+    private FlightEvents() {
+    }
+
+    static Object beginFire() {
+        if (!Recordings.isRunning()) return null;
+
+        final Fire fire = new Fire();
+        if (!fire.isEnabled()) return null;
+
+        fire.begin();
+        return fire;
+    }
+
+    static void endFire(final Object fire, final Class<?> eventType, final ObserverManager.Invocation invocation) {
+        if (fire == null) return;
+
+        final Fire event = (Fire) fire;
+        event.end();
+        if (event.shouldCommit()) {
+            event.eventType = eventType;
+            event.observers = ObserverManager.countObservers(invocation);
+            event.commit();
+        }
+    }
+
+    static Object beginObserver() {
+        if (!Recordings.isRunning()) return null;
+
+        final ObserverInvocation invocation = new ObserverInvocation();
+        if (!invocation.isEnabled()) return null;
+
+        invocation.begin();
+        return invocation;
+    }
+
+    static void endObserver(final Object observer, final Method method, final Class<?> eventType) {
+        if (observer == null) return;
+
+        final ObserverInvocation invocation = (ObserverInvocation) observer;
+        invocation.end();
+        if (invocation.shouldCommit()) {
+            invocation.observerClass = method.getDeclaringClass();
+            invocation.method = method.getName();
+            invocation.eventType = eventType;
+            invocation.commit();
+        }
+    }
+
+    @Name("org.tomitribe.pixie.Fire")
+    @Label("Event Fired")
+    @Description("An event dispatched to its observers by fireEvent, including Before and After phases")
+    @Category({"Pixie", "Events"})
+    @StackTrace(false)
+    static class Fire extends Event {
+        @Label("Event Type")
+        Class<?> eventType;
+
+        @Label("Observers")
+        int observers;
+    }
+
+    @Name("org.tomitribe.pixie.ObserverInvocation")
+    @Label("Observer Invocation")
+    @Description("A single @Observes method that took longer than the threshold")
+    @Category({"Pixie", "Events"})
+    @Threshold("1 ms")
+    static class ObserverInvocation extends Event {
+        @Label("Observer Class")
+        Class<?> observerClass;
+
+        @Label("Method")
+        String method;
+
+        @Label("Event Type")
+        Class<?> eventType;
+    }
+}
@@ -0,0 +1,59 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.tomitribe.pixie.observer;
+
+import jdk.jfr.FlightRecorder;
+import jdk.jfr.FlightRecorderListener;
+import jdk.jfr.Recording;
+import jdk.jfr.RecordingState;
+
+/**
+ * Tracks whether any JFR recording is running, so the hooks in FlightEvents can bail out on
+ * a single volatile read. Registering the listener does not start Flight Recorder.
+ */
+final class Recordings {
+
+    private static volatile boolean running;
+
+    static {
+        try {
+            FlightRecorder.addListener(new FlightRecorderListener() {
+                @Override
+                public void recordingStateChanged(final Recording recording) {
+                    update();
+                }
+            });
+
+            if (FlightRecorder.isInitialized()) update();
+        } catch (final Throwable e) {
+            // Flight Recorder unavailable in this JVM; nothing is ever recorded
+            running = false;
+        }
+    }
+
+    private Recordings() {
+    }
+
+    static boolean isRunning() {
+        return running;
+    }
+
+    private static void update() {
+        boolean any = false;
+        for (final Recording recording : FlightRecorder.getFlightRecorder().getRecordings()) {
+            any |= recording.getState() == RecordingState.RUNNING;
+        }
+        running = any;
+    }
+}
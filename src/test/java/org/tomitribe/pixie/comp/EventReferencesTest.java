@@ -14,6 +14,7 @@
 package org.tomitribe.pixie.comp;
 
 import org.tomitribe.pixie.Event;
+import org.tomitribe.pixie.EventConsumer;
 import org.junit.Assert;
 import org.junit.Test;
 
@@ -33,6 +34,14 @@ public class EventReferencesTest extends Assert {
         assertEquals(Date.class, clazz);
     }
 
+    @Test
+    public void eventConsumer() throws Exception {
+
+        final Class clazz = get(ValidEventConsumer.class);
+
+        assertEquals(Date.class, clazz);
+    }
+
     @Test
     public void missingGeneric() throws Exception {
 
@@ -97,6 +106,11 @@ public class EventReferencesTest extends Assert {
         }
     }
 
+    public static class ValidEventConsumer {
+        public ValidEventConsumer(@Event EventConsumer<Date> consumer) {
+        }
+    }
+
     public static class MissingGeneric {
         public MissingGeneric(@Event Consumer consumer) {
         }
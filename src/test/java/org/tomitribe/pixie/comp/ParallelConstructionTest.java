@@ -0,0 +1,170 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.tomitribe.pixie.comp;
+
+import org.junit.Assert;
+import org.junit.Test;
+import org.tomitribe.pixie.Component;
+import org.tomitribe.pixie.Name;
+import org.tomitribe.pixie.Param;
+import org.tomitribe.pixie.System;
+import org.tomitribe.pixie.VirtualThreadExecutor;
+import org.tomitribe.util.SuperProperties;
+
+import java.util.List;
+import java.util.Properties;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.stream.Collectors;
+
+public class ParallelConstructionTest extends Assert {
+
+    private static final Set<String> THREADS = ConcurrentHashMap.newKeySet();
+
+    @Test
+    public void constructedOnExecutor() throws Exception {
+        final ExecutorService pool = Executors.newFixedThreadPool(4, r -> new Thread(r, "builder"));
+        try {
+            final Properties properties = solarSystem();
+            properties.put("pixie.construction.executor", "@pool");
+
+            THREADS.clear();
+            final System system = System.builder()
+                    .add("pool", pool)
+                    .build();
+            system.load(properties);
+
+            assertSolarSystem(system);
+            assertEquals("[builder]", THREADS.toString());
+        } finally {
+            pool.shutdown();
+        }
+    }
+
+    @Test
+    public void executorDeclaredInline() throws Exception {
+        final Properties properties = solarSystem();
+        properties.put("pixie.construction.executor", "new://" + VirtualThreadExecutor.class.getName());
+
+        final System system = new System(properties);
+
+        assertSolarSystem(system);
+        assertNotNull(system.get(Executor.class, "pixie.construction.executor"));
+    }
+
+    @Test
+    public void failureReported() throws Exception {
+        final Properties properties = solarSystem();
+        properties.put("pixie.construction.executor", "new://" + VirtualThreadExecutor.class.getName());
+        properties.put("pluto", "new://" + DwarfPlanet.class.getName());
+
+        try {
+            new System(properties);
+            fail("ConstructionFailedException expected");
+        } catch (final ConstructionFailedException e) {
+            assertEquals(DwarfPlanet.class, e.getComponent());
+        }
+    }
+
+    @Test
+    public void failureWaitsForTheWave() throws Exception {
+        final ExecutorService pool = Executors.newFixedThreadPool(2);
+        try {
+            final Properties properties = new SuperProperties();
+            properties.put("pixie.construction.executor", "@pool");
+            properties.put("pluto", "new://" + DwarfPlanet.class.getName());
+            properties.put("ceres", "new://" + SlowPlanet.class.getName());
+
+            SlowPlanet.built = false;
+            final System system = System.builder()
+                    .add("pool", pool)
+                    .build();
+            try {
+                system.load(properties);
+                fail("ConstructionFailedException expected");
+            } catch (final ConstructionFailedException e) {
+                assertEquals(DwarfPlanet.class, e.getComponent());
+            }
+
+            // the failure surfaced only once the rest of its wave had finished
+            assertTrue(SlowPlanet.built);
+        } finally {
+            pool.shutdown();
+        }
+    }
+
+    private static Properties solarSystem() {
+        final Properties properties = new SuperProperties();
+        properties.put("helios", "new://" + SolarSystem.class.getName());
+        properties.put("mercury", "new://" + World.class.getName());
+        properties.put("venus", "new://" + World.class.getName());
+        properties.put("earth", "new://" + World.class.getName());
+        properties.put("mars", "new://" + World.class.getName());
+        return properties;
+    }
+
+    private static void assertSolarSystem(final System system) {
+        final SolarSystem solarSystem = system.get(SolarSystem.class);
+        assertNotNull(solarSystem);
+        assertEquals("[earth, mars, mercury, venus]", solarSystem.getWorlds().stream()
+                .map(World::getName)
+                .sorted()
+                .collect(Collectors.toList())
+                .toString());
+    }
+
+    public static class SolarSystem {
+        private final List<World> worlds;
+
+        public SolarSystem(final @Param("worlds") @Component List<World> worlds) {
+            THREADS.add(Thread.currentThread().getName());
+            this.worlds = worlds;
+        }
+
+        public List<World> getWorlds() {
+            return worlds;
+        }
+    }
+
+    public static class World {
+        private final String name;
+
+        public World(final @Name String name) {
+            THREADS.add(Thread.currentThread().getName());
+            this.name = name;
+        }
+
+        public String getName() {
+            return name;
+        }
+    }
+
+    public static class SlowPlanet {
+        private static volatile boolean built;
+
+        public SlowPlanet() throws InterruptedException {
+            Thread.sleep(200);
+            built = true;
+        }
+    }
+
+    public static class DwarfPlanet {
+        public DwarfPlanet() {
+            throw new IllegalStateException("not a planet");
+        }
+    }
+}
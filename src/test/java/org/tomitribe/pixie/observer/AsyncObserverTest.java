@@ -0,0 +1,193 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.tomitribe.pixie.observer;
+
+import org.junit.Test;
+import org.tomitribe.pixie.Component;
+import org.tomitribe.pixie.Event;
+import org.tomitribe.pixie.Observes;
+import org.tomitribe.pixie.Param;
+import org.tomitribe.pixie.System;
+import org.tomitribe.pixie.event.AfterEvent;
+import org.tomitribe.pixie.event.BeforeEvent;
+import org.tomitribe.pixie.event.ObserverFailed;
+
+import java.util.List;
+import java.util.Properties;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+public class AsyncObserverTest {
+
+    @Test
+    public void fireEventAsyncKeepsPhases() throws Exception {
+        final ObserverManager mgr = new ObserverManager();
+        final ExecutorService pool = Executors.newSingleThreadExecutor(r -> new Thread(r, "pixie-async"));
+        mgr.setExecutor(pool);
+
+        final List<String> invoked = new CopyOnWriteArrayList<>();
+        mgr.addObserver(new Object() {
+            public void before(@Observes final BeforeEvent<String> event) {
+                invoked.add("before " + Thread.currentThread().getName());
+            }
+
+            public void observe(@Observes final String event) {
+                invoked.add("observe " + Thread.currentThread().getName());
+            }
+
+            public void after(@Observes final AfterEvent<String> event) {
+                invoked.add("after " + Thread.currentThread().getName());
+            }
+        });
+
+        try {
+            final String event = "hello";
+            assertSame(event, mgr.fireEventAsync(event).get(10, TimeUnit.SECONDS));
+
+            Util.assertEvent(invoked,
+                    "before pixie-async",
+                    "observe pixie-async",
+                    "after pixie-async");
+        } finally {
+            pool.shutdown();
+        }
+    }
+
+    @Test
+    public void asyncObserverDoesNotBlockFire() throws Exception {
+        final ObserverManager mgr = new ObserverManager();
+        final CountDownLatch release = new CountDownLatch(1);
+        final CountDownLatch done = new CountDownLatch(1);
+        final List<Thread> threads = new CopyOnWriteArrayList<>();
+
+        mgr.addObserver(new Object() {
+            public void observe(@Observes(async = true) final String event) throws InterruptedException {
+                threads.add(Thread.currentThread());
+                release.await(10, TimeUnit.SECONDS);
+                done.countDown();
+            }
+        });
+
+        mgr.fireEvent("hello"); // returns while the observer is still blocked
+        release.countDown();
+
+        assertTrue(done.await(10, TimeUnit.SECONDS));
+        assertNotSame(Thread.currentThread(), threads.get(0));
+    }
+
+    @Test
+    public void asyncFailureReported() throws Exception {
+        final ObserverManager mgr = new ObserverManager();
+        final CountDownLatch failed = new CountDownLatch(1);
+
+        mgr.addObserver(new Object() {
+            public void observe(@Observes(async = true) final String event) {
+                throw new IllegalStateException("I always fail");
+            }
+
+            public void failed(@Observes final ObserverFailed event) {
+                if (event.getThrowable() instanceof IllegalStateException) failed.countDown();
+            }
+        });
+
+        mgr.fireEvent("hello");
+
+        assertTrue(failed.await(10, TimeUnit.SECONDS));
+    }
+
+    @Test
+    public void executorFromProperties() throws Exception {
+        final Properties properties = new Properties();
+        properties.put("workers", "new://" + Workers.class.getName());
+        properties.put("pixie.executor", "@workers");
+
+        final System system = new System(properties);
+        final Workers workers = system.get(Workers.class);
+
+        assertEquals("hello", system.fireEventAsync("hello").get(10, TimeUnit.SECONDS));
+        assertEquals(1, workers.executed.get());
+    }
+
+    @Test
+    public void executorDeclaredInline() throws Exception {
+        final Properties properties = new Properties();
+        properties.put("pixie.executor", "new://" + Workers.class.getName());
+
+        final System system = new System(properties);
+        final Workers workers = system.get(Workers.class);
+
+        system.fireEventAsync("hello").get(10, TimeUnit.SECONDS);
+        assertEquals(1, workers.executed.get());
+    }
+
+    @Test
+    public void executorUsedWhileBuilding() throws Exception {
+        final Properties properties = new Properties();
+        properties.put("workers", "new://" + Workers.class.getName());
+        properties.put("pixie.executor", "@workers");
+        properties.put("listener", "new://" + Listener.class.getName());
+        properties.put("starter", "new://" + Starter.class.getName());
+        properties.put("starter.workers", "@workers");
+        properties.put("starter.listener", "@listener");
+
+        final System system = new System(properties);
+        final Listener listener = system.get(Listener.class);
+
+        assertEquals(1, system.get(Workers.class).executed.get());
+        assertEquals(1, listener.started.get());
+    }
+
+    public static class Listener {
+        private final AtomicInteger started = new AtomicInteger();
+
+        public void started(@Observes(async = true) final Started event) {
+            started.incrementAndGet();
+        }
+    }
+
+    public static class Started {
+    }
+
+    /**
+     * Fires from its constructor, after the executor and the listener are built
+     */
+    public static class Starter {
+        public Starter(@Param("workers") @Component final Workers workers,
+                       @Param("listener") @Component final Listener listener,
+                       @Event final Consumer<Started> events) {
+            events.accept(new Started());
+        }
+    }
+
+    public static class Workers implements Executor {
+        private final AtomicInteger executed = new AtomicInteger();
+
+        @Override
+        public void execute(final Runnable command) {
+            executed.incrementAndGet();
+            command.run();
+        }
+    }
+}
@@ -0,0 +1,141 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.tomitribe.pixie.observer;
+
+import org.junit.Test;
+import org.tomitribe.pixie.Event;
+import org.tomitribe.pixie.EventConsumer;
+import org.tomitribe.pixie.Observes;
+import org.tomitribe.pixie.System;
+import org.tomitribe.pixie.event.AfterEvent;
+import org.tomitribe.pixie.event.BeforeEvent;
+import org.tomitribe.pixie.event.ObserverFailed;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Properties;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.fail;
+
+public class BatchFireTest {
+
+    @Test
+    public void phasesPerEventInOrder() {
+        final ObserverManager mgr = new ObserverManager();
+        final List<String> invoked = new ArrayList<>();
+
+        mgr.addObserver(new Object() {
+            public void before(@Observes final BeforeEvent<Object> event) {
+                invoked.add("before " + event.getEvent());
+            }
+
+            public void observe(@Observes final String event) {
+                invoked.add("string " + event);
+            }
+
+            public void observe(@Observes final Integer event) {
+                invoked.add("integer " + event);
+            }
+
+            public void after(@Observes final AfterEvent<Object> event) {
+                invoked.add("after " + event.getEvent());
+            }
+        });
+
+        invoked.clear();
+        mgr.fireEvents(Arrays.asList("a", 1, "b"));
+
+        Util.assertEvent(invoked,
+                "before a", "string a", "after a",
+                "before 1", "integer 1", "after 1",
+                "before b", "string b", "after b");
+    }
+
+    @Test
+    public void everyFailureReported() {
+        final ObserverManager mgr = new ObserverManager();
+        final List<Object> failed = new ArrayList<>();
+
+        mgr.addObserver(new Object() {
+            public void observe(@Observes final String event) {
+                throw new IllegalStateException(event);
+            }
+
+            public void failed(@Observes final ObserverFailed event) {
+                failed.add(event.getEvent());
+            }
+        });
+
+        mgr.fireEvents(Arrays.asList("one", "two", "three"));
+
+        assertEquals(Arrays.asList("one", "two", "three"), failed);
+    }
+
+    @Test
+    public void acceptAllChecksType() {
+        final ObserverManager mgr = new ObserverManager();
+        final EventConsumer numbers = (EventConsumer) mgr.consumersOf(Number.class);
+        final List<Object> observed = new ArrayList<>();
+
+        mgr.addObserver(new Object() {
+            public void observe(@Observes final Object event) {
+                observed.add(event);
+            }
+        });
+
+        try {
+            observed.clear();
+            numbers.acceptAll(Arrays.asList(1, 2L, "three"));
+            fail("IllegalArgumentException expected");
+        } catch (final IllegalArgumentException e) {
+            assertEquals("event java.lang.String is not a java.lang.Number", e.getMessage());
+        }
+
+        assertEquals(Arrays.<Object>asList(1, 2L), observed);
+    }
+
+    @Test
+    public void injectedEventConsumer() {
+        final Properties properties = new Properties();
+        properties.put("importer", "new://" + Importer.class.getName());
+        properties.put("counter", "new://" + Counter.class.getName());
+
+        final System system = new System(properties);
+        system.get(Importer.class).load("x", "y", "z");
+
+        assertEquals(Arrays.asList("x", "y", "z"), system.get(Counter.class).seen);
+    }
+
+    public static class Importer {
+        private final EventConsumer<String> lines;
+
+        public Importer(@Event final EventConsumer<String> lines) {
+            this.lines = lines;
+        }
+
+        public void load(final String... lines) {
+            this.lines.acceptAll(Arrays.asList(lines));
+        }
+    }
+
+    public static class Counter {
+        private final List<String> seen = new ArrayList<>();
+
+        public void observe(@Observes final String line) {
+            seen.add(line);
+        }
+    }
+}
@@ -0,0 +1,207 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.tomitribe.pixie.observer;
+
+import org.junit.After;
+import org.junit.Test;
+import org.tomitribe.pixie.Observes;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class CoalescingTest {
+
+    private final ObserverManager mgr = new ObserverManager();
+    private final List<Object> observed = new CopyOnWriteArrayList<>();
+
+    @After
+    public void shutdown() {
+        mgr.shutdown();
+    }
+
+    @Test
+    public void lastEventWins() throws Exception {
+        mgr.addObserver(new Listener(observed));
+        mgr.coalesce(String.class, 100, TimeUnit.MILLISECONDS);
+
+        mgr.fireEvent("a");
+        mgr.fireEvent("b");
+        mgr.fireEvent("c");
+        assertTrue(observed.isEmpty());
+
+        await(1);
+        assertEquals(Collections.singletonList("c"), observed);
+
+        mgr.fireEvent("d");
+        await(2);
+        assertEquals(Arrays.asList("c", "d"), observed);
+    }
+
+    @Test
+    public void combiner() throws Exception {
+        mgr.addObserver(new Listener(observed));
+        mgr.coalesce(Integer.class, 200, TimeUnit.MILLISECONDS, Integer::sum);
+
+        for (int i = 1; i <= 100; i++) {
+            mgr.fireEvent(i);
+        }
+
+        await(1);
+        assertEquals(Collections.singletonList(5050), observed);
+    }
+
+    @Test
+    public void subtypesShareTheWindow() throws Exception {
+        mgr.addObserver(new Listener(observed));
+        mgr.coalesce(Number.class, 100, TimeUnit.MILLISECONDS);
+
+        mgr.fireEvent(1);
+        mgr.fireEvent(2L);
+        mgr.fireEvent("not coalesced");
+        assertEquals(Collections.singletonList("not coalesced"), observed);
+
+        await(2);
+        assertEquals(Arrays.asList("not coalesced", 2L), observed);
+    }
+
+    @Test
+    public void fireEvents() throws Exception {
+        mgr.addObserver(new Listener(observed));
+        mgr.coalesce(String.class, 100, TimeUnit.MILLISECONDS);
+
+        mgr.fireEvents(Arrays.asList("a", 1, "b", 2));
+        assertEquals(Arrays.asList(1, 2), observed);
+
+        await(3);
+        assertEquals(Arrays.asList(1, 2, "b"), observed);
+    }
+
+    @Test
+    public void fireEventAsyncCompletesOnDelivery() throws Exception {
+        mgr.addObserver(new Listener(observed));
+        mgr.coalesce(String.class, 100, TimeUnit.MILLISECONDS);
+
+        mgr.fireEvent("a");
+        assertEquals("b", mgr.fireEventAsync("b").get(10, TimeUnit.SECONDS));
+        assertEquals(Collections.singletonList("b"), observed);
+    }
+
+    @Test
+    public void shutdownDeliversPending() {
+        mgr.addObserver(new Listener(observed));
+        mgr.coalesce(String.class, 1, TimeUnit.HOURS);
+
+        mgr.fireEvent("a");
+        mgr.fireEvent("b");
+        mgr.shutdown();
+        assertEquals(Collections.singletonList("b"), observed);
+
+        mgr.fireEvent("c");
+        assertEquals(Arrays.asList("b", "c"), observed);
+    }
+
+    @Test
+    public void fireEventAsyncWaitsForTheLane() throws Exception {
+        final CountDownLatch started = new CountDownLatch(1);
+        final CountDownLatch release = new CountDownLatch(1);
+        mgr.addObserver(new Object() {
+            public void observe(@Observes final String event) throws InterruptedException {
+                started.countDown();
+                release.await(10, TimeUnit.SECONDS);
+                observed.add(event);
+            }
+        });
+        mgr.coalesce(String.class, 50, TimeUnit.MILLISECONDS);
+        mgr.partition(String.class, event -> event);
+
+        final CompletableFuture<String> future = mgr.fireEventAsync("a");
+        assertTrue(started.await(10, TimeUnit.SECONDS));
+
+        // the window has closed and the lane is delivering it, but has not finished
+        assertFalse(future.isDone());
+
+        release.countDown();
+        assertEquals("a", future.get(10, TimeUnit.SECONDS));
+        assertEquals(Collections.singletonList("a"), observed);
+    }
+
+    @Test
+    public void shutdownWhileFiring() throws Exception {
+        final AtomicInteger total = new AtomicInteger();
+        mgr.addObserver(new Object() {
+            public void observe(@Observes final Integer event) {
+                total.addAndGet(event);
+            }
+        });
+        mgr.coalesce(Integer.class, 1, TimeUnit.HOURS, Integer::sum);
+
+        final List<Throwable> failures = new CopyOnWriteArrayList<>();
+        final List<Thread> threads = new ArrayList<>();
+        for (int i = 0; i < 4; i++) {
+            threads.add(new Thread(() -> {
+                try {
+                    for (int j = 0; j < 5000; j++) {
+                        mgr.fireEvent(1);
+                    }
+                } catch (final Throwable t) {
+                    failures.add(t);
+                }
+            }));
+        }
+
+        threads.forEach(Thread::start);
+        mgr.shutdown();
+        for (final Thread thread : threads) {
+            thread.join(10000);
+        }
+
+        // every event is delivered, in a window closed by shutdown or on its own after it
+        assertEquals(Collections.emptyList(), failures);
+        assertEquals(20000, total.get());
+    }
+
+    private void await(final int count) throws InterruptedException {
+        final long timeout = java.lang.System.currentTimeMillis() + 10000;
+        while (observed.size() < count && java.lang.System.currentTimeMillis() < timeout) {
+            Thread.sleep(10);
+        }
+    }
+
+    public static class Listener {
+        private final List<Object> observed;
+
+        public Listener(final List<Object> observed) {
+            this.observed = observed;
+        }
+
+        public void observe(@Observes final String event) {
+            observed.add(event);
+        }
+
+        public void observe(@Observes final Number event) {
+            observed.add(event);
+        }
+    }
+}
@@ -0,0 +1,140 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.tomitribe.pixie.observer;
+
+import org.junit.Test;
+import org.tomitribe.pixie.Observes;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+public class ConsumerReferenceTest {
+
+    @Test
+    public void observersAddedAndRemovedAfterFirstAccept() {
+        final ObserverManager mgr = new ObserverManager();
+        final Consumer<String> consumer = mgr.consumersOf(String.class);
+        final List<String> observed = new ArrayList<>();
+
+        consumer.accept("unobserved");
+
+        final Object observer = new Object() {
+            public void observe(@Observes final String event) {
+                observed.add(event);
+            }
+        };
+        mgr.addObserver(observer);
+        consumer.accept("one");
+        consumer.accept("two");
+
+        mgr.removeObserver(observer);
+        consumer.accept("three");
+
+        assertEquals(Arrays.asList("one", "two"), observed);
+    }
+
+    @Test
+    public void eventClassChanges() {
+        final ObserverManager mgr = new ObserverManager();
+        final Consumer<Number> consumer = mgr.consumersOf(Number.class);
+        final List<String> observed = new ArrayList<>();
+
+        mgr.addObserver(new Object() {
+            public void observe(@Observes final Integer event) {
+                observed.add("integer " + event);
+            }
+
+            public void observe(@Observes final Number event) {
+                observed.add("number " + event);
+            }
+        });
+
+        consumer.accept(1);
+        consumer.accept(2L);
+        consumer.accept(3);
+        consumer.accept(3);
+
+        assertEquals(Arrays.asList("integer 1", "number 2", "integer 3", "integer 3"), observed);
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    public void typeStillCheckedOnceResolved() {
+        final ObserverManager mgr = new ObserverManager();
+        final Consumer raw = mgr.consumersOf(String.class);
+
+        raw.accept("warm");
+
+        try {
+            raw.accept(1);
+            fail("IllegalArgumentException expected");
+        } catch (final IllegalArgumentException e) {
+            assertEquals("event java.lang.Integer is not a java.lang.String", e.getMessage());
+        }
+    }
+
+    @Test
+    public void partitionedAfterFirstAccept() throws Exception {
+        final ObserverManager mgr = new ObserverManager();
+        final Consumer<String> consumer = mgr.consumersOf(String.class);
+        final List<String> threads = new CopyOnWriteArrayList<>();
+
+        mgr.addObserver(new Object() {
+            public void observe(@Observes final String event) {
+                threads.add(Thread.currentThread().getName());
+            }
+        });
+
+        try {
+            consumer.accept("here");
+            mgr.partition(String.class, event -> event);
+            consumer.accept("lane");
+
+            final long timeout = java.lang.System.currentTimeMillis() + 10000;
+            while (threads.size() < 2 && java.lang.System.currentTimeMillis() < timeout) {
+                TimeUnit.MILLISECONDS.sleep(10);
+            }
+
+            assertEquals(Thread.currentThread().getName(), threads.get(0));
+            assertTrue(threads.get(1), threads.get(1).startsWith("pixie-lane-"));
+        } finally {
+            mgr.shutdown();
+        }
+    }
+
+    @Test
+    public void metricsEnabledAfterFirstAccept() {
+        final ObserverManager mgr = new ObserverManager();
+        final Consumer<String> consumer = mgr.consumersOf(String.class);
+
+        mgr.addObserver(new Object() {
+            public void observe(@Observes final String event) {
+            }
+        });
+
+        consumer.accept("before");
+        mgr.setMetricsEnabled(true);
+        consumer.accept("after");
+
+        assertEquals(Long.valueOf(1), mgr.getMetrics().getFires().get(String.class));
+    }
+}
@@ -0,0 +1,209 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.tomitribe.pixie.observer;
+
+import org.junit.Test;
+import org.tomitribe.pixie.Observes;
+import org.tomitribe.pixie.System;
+import org.tomitribe.pixie.event.AfterEvent;
+
+import java.util.Properties;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+public class DispatchMetricsTest {
+
+    @Test
+    public void offByDefault() {
+        final ObserverManager mgr = new ObserverManager();
+        mgr.addObserver(new Plain());
+
+        assertFalse(mgr.isMetricsEnabled());
+        assertNull(mgr.getMetrics());
+
+        // the plain chain, nothing wrapped around it
+        assertTrue(mgr.getInvocation(String.class) instanceof ObserverManager.MethodInvocation);
+    }
+
+    @Test
+    public void firesDeliveriesAndFailures() throws Exception {
+        final ObserverManager mgr = new ObserverManager();
+        final Listener listener = new Listener();
+        mgr.addObserver(listener);
+        mgr.setMetricsEnabled(true);
+
+        for (int i = 0; i < 10; i++) {
+            mgr.fireEvent("hello");
+        }
+        mgr.fireEvent(42);
+        mgr.fireEvent(43);
+
+        final DispatchMetrics metrics = mgr.getMetrics();
+        assertEquals(10L, (long) metrics.getFires().get(String.class));
+        assertEquals(2L, (long) metrics.getFires().get(Integer.class));
+
+        final DispatchMetrics.ObserverMetrics strings = observer(metrics, "string");
+        assertSame(listener, strings.getObserver());
+        assertEquals(10, strings.getDeliveries());
+        assertEquals(0, strings.getFailures());
+        assertEquals(10, strings.getLatency().getCount());
+        assertTrue(strings.getLatency().getPercentile(99) >= strings.getLatency().getPercentile(50));
+
+        final DispatchMetrics.ObserverMetrics numbers = observer(metrics, "number");
+        assertEquals(2, numbers.getDeliveries());
+        assertEquals(2, numbers.getFailures());
+
+        // the After phase observer is metered like any other
+        assertEquals(10, observer(metrics, "after").getDeliveries());
+    }
+
+    @Test
+    public void asyncObserversMetered() throws Exception {
+        final ObserverManager mgr = new ObserverManager();
+        final CountDownLatch done = new CountDownLatch(3);
+        mgr.setMetricsEnabled(true);
+        mgr.addObserver(new Object() {
+            public void observe(@Observes(async = true) final String event) {
+                done.countDown();
+            }
+        });
+
+        mgr.fireEvent("a");
+        mgr.fireEvent("b");
+        mgr.fireEvent("c");
+        assertTrue(done.await(10, TimeUnit.SECONDS));
+
+        // the count lands just after the observer returns
+        for (int i = 0; i < 100 && observer(mgr.getMetrics(), "observe").getDeliveries() < 3; i++) {
+            Thread.sleep(10);
+        }
+        assertEquals(3, observer(mgr.getMetrics(), "observe").getDeliveries());
+    }
+
+    @Test
+    public void turningOffRestoresPlainChains() {
+        final ObserverManager mgr = new ObserverManager();
+        mgr.addObserver(new Plain());
+
+        mgr.setMetricsEnabled(true);
+        mgr.fireEvent("hello");
+        assertFalse(mgr.getInvocation(String.class) instanceof ObserverManager.MethodInvocation);
+
+        mgr.setMetricsEnabled(false);
+        assertTrue(mgr.getInvocation(String.class) instanceof ObserverManager.MethodInvocation);
+        assertNull(mgr.getMetrics());
+    }
+
+    @Test
+    public void removedObserversForgotten() {
+        final ObserverManager mgr = new ObserverManager();
+        final Listener listener = new Listener();
+        mgr.setMetricsEnabled(true);
+        mgr.addObserver(listener);
+        mgr.fireEvent("hello");
+
+        mgr.removeObserver(listener);
+
+        for (final DispatchMetrics.ObserverMetrics observer : mgr.getMetrics().getObservers()) {
+            assertFalse(observer.getObserver() == listener);
+        }
+    }
+
+    @Test
+    public void removedByEqualObserverForgotten() {
+        final ObserverManager mgr = new ObserverManager();
+        mgr.setMetricsEnabled(true);
+        mgr.addObserver(new Keyed("a"));
+        mgr.fireEvent("hello");
+
+        assertTrue(mgr.removeObserver(new Keyed("a")));
+        assertTrue(mgr.getMetrics().getObservers().isEmpty());
+    }
+
+    @Test
+    public void histogramBuckets() {
+        final long[] buckets = new long[64];
+        buckets[6] = 90;  // 64-127ns
+        buckets[20] = 10; // ~1-2ms
+
+        final DispatchMetrics.Histogram histogram = new DispatchMetrics.Histogram(buckets, 100);
+        assertEquals(100, histogram.getCount());
+        assertEquals(127, histogram.getPercentile(50));
+        assertEquals(127, histogram.getPercentile(90));
+        assertEquals((1 << 21) - 1, histogram.getPercentile(99));
+    }
+
+    @Test
+    public void systemProperty() {
+        final Properties properties = new Properties();
+        properties.put("pixie.metrics", "true");
+
+        final System system = new System(properties);
+        system.addObserver(new Listener());
+        system.fireEvent("hello");
+
+        assertEquals(1, observer(system.getMetrics(), "string").getDeliveries());
+    }
+
+    private static DispatchMetrics.ObserverMetrics observer(final DispatchMetrics metrics, final String method) {
+        for (final DispatchMetrics.ObserverMetrics observer : metrics.getObservers()) {
+            if (observer.getMethod().getName().equals(method)) return observer;
+        }
+        throw new AssertionError("No metrics for " + method + " in " + metrics);
+    }
+
+    public static class Keyed {
+        private final String key;
+
+        public Keyed(final String key) {
+            this.key = key;
+        }
+
+        public void string(@Observes final String event) {
+        }
+
+        @Override
+        public boolean equals(final Object o) {
+            return o instanceof Keyed && key.equals(((Keyed) o).key);
+        }
+
+        @Override
+        public int hashCode() {
+            return key.hashCode();
+        }
+    }
+
+    public static class Plain {
+        public void string(@Observes final String event) {
+        }
+    }
+
+    public static class Listener {
+        public void string(@Observes final String event) {
+        }
+
+        public void number(@Observes final Integer event) {
+            throw new IllegalStateException("I always fail");
+        }
+
+        public void after(@Observes final AfterEvent<String> event) {
+        }
+    }
+}
@@ -0,0 +1,157 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.tomitribe.pixie.observer;
+
+import org.junit.Assert;
+import org.junit.Assume;
+import org.junit.Test;
+import org.tomitribe.pixie.Observes;
+
+import java.lang.management.ManagementFactory;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Times a stream of events through fireEvent, which allocates each one, against the same stream
+ * through a ring of preallocated events, and measures what the ring's producer and its stage
+ * allocate once warmed up, using the per-thread allocation counter of the HotSpot ThreadMXBean.
+ */
+public class EventRingSpeedTest extends Assert {
+
+    private static final String format = "%10s %12s %10s %10s";
+
+    @Test
+    public void test() throws Exception {
+        final long start = System.nanoTime();
+        final int max = 5000000;
+
+        System.out.println(String.format(format, "Events", "", "Events/s", "Bytes/evt"));
+
+        final Sample.Sum fired = new Sample.Sum();
+        final ObserverManager mgr = new ObserverManager();
+        mgr.addObserver(fired);
+
+        final long fireStart = System.nanoTime();
+        for (long i = 0; i < max; i++) {
+            mgr.fireEvent(new Sample(i));
+        }
+        print("fireEvent", max, System.nanoTime() - fireStart, -1);
+
+        for (final EventRing.Wait wait : new EventRing.Wait[]{EventRing.Wait.YIELDING, EventRing.Wait.BLOCKING}) {
+            final Sample.Sum sum = new Sample.Sum();
+            final ObserverManager ringed = new ObserverManager();
+            ringed.addObserver(sum);
+
+            final EventRing<Sample> ring = ringed.ring(Sample.class, Sample::new, 1024, EventRing.Producers.SINGLE, wait);
+
+            // warm up
+            publish(ring, max / 10);
+
+            final long ringStart = System.nanoTime();
+            publish(ring, max);
+            ring.close();
+            print("ring " + wait.name().toLowerCase(), max, System.nanoTime() - ringStart, -1);
+
+            assertEquals(max / 10 + max, sum.count);
+        }
+
+        final long seconds = TimeUnit.NANOSECONDS.toSeconds(System.nanoTime() - start);
+        assertTrue(seconds < 60);
+    }
+
+    @Test
+    public void noSteadyStateAllocation() throws Exception {
+        final com.sun.management.ThreadMXBean threads = threads();
+        Assume.assumeNotNull(threads);
+
+        final Sample.Sum sum = new Sample.Sum();
+        final ObserverManager mgr = new ObserverManager();
+        mgr.addObserver(sum);
+
+        final EventRing<Sample> ring = mgr.ring(Sample.class, Sample::new, 1024,
+                EventRing.Producers.MULTI, EventRing.Wait.YIELDING);
+        final Thread stage = stage();
+
+        final int max = 1000000;
+        publish(ring, max);
+
+        final long producer = Thread.currentThread().getId();
+        final long producerStart = threads.getThreadAllocatedBytes(producer);
+        final long stageStart = threads.getThreadAllocatedBytes(stage.getId());
+
+        publish(ring, max);
+        final long produced = threads.getThreadAllocatedBytes(producer) - producerStart;
+
+        // read the stage's counter while it is still alive, once it has caught up
+        while (sum.count < 2 * max) {
+            Thread.yield();
+        }
+        final long consumed = threads.getThreadAllocatedBytes(stage.getId()) - stageStart;
+        ring.close();
+
+        print("producer", max, 0, produced);
+        print("stage", max, 0, consumed);
+
+        assertEquals(2 * max, sum.count);
+        assertTrue(produced / max < 1);
+        assertTrue(consumed / max < 1);
+    }
+
+    private static void publish(final EventRing<Sample> ring, final int count) {
+        for (long i = 0; i < count; i++) {
+            ring.publish((sample, value) -> sample.value = value, i);
+        }
+    }
+
+    private static Thread stage() {
+        for (final Thread thread : Thread.getAllStackTraces().keySet()) {
+            if (thread.getName().equals("pixie-ring-Sample-0")) return thread;
+        }
+        throw new AssertionError("no stage thread");
+    }
+
+    private static void print(final String name, final int events, final long nanos, final long bytes) {
+        final long perSecond = nanos == 0 ? 0 : (long) (events / (nanos / 1e9));
+        System.out.println(String.format(format, events, name, perSecond, bytes < 0 ? "" : bytes / events));
+    }
+
+    private static com.sun.management.ThreadMXBean threads() {
+        try {
+            final java.lang.management.ThreadMXBean bean = ManagementFactory.getThreadMXBean();
+            return bean instanceof com.sun.management.ThreadMXBean ? (com.sun.management.ThreadMXBean) bean : null;
+        } catch (final LinkageError e) {
+            return null;
+        }
+    }
+
+    public static class Sample {
+        private long value;
+
+        public Sample() {
+        }
+
+        public Sample(final long value) {
+            this.value = value;
+        }
+
+        public static class Sum {
+            private long total;
+            private volatile long count;
+
+            public void observe(@Observes final Sample sample) {
+                total += sample.value;
+                count++;
+            }
+        }
+    }
+}
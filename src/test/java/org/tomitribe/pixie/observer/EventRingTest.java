@@ -0,0 +1,265 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.tomitribe.pixie.observer;
+
+import org.junit.Test;
+import org.tomitribe.pixie.Observes;
+import org.tomitribe.pixie.event.ObserverFailed;
+
+import java.lang.ref.WeakReference;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+public class EventRingTest {
+
+    @Test
+    public void everyStageSeesEveryEventInOrder() {
+        final ObserverManager mgr = new ObserverManager();
+        final Tick.Recorder first = new Tick.Recorder();
+        final Tick.Recorder second = new Tick.Recorder();
+        mgr.addObserver(first);
+        mgr.addObserver(second);
+
+        final EventRing<Tick> ring = mgr.ring(Tick.class, Tick::new, 16, EventRing.Producers.SINGLE, EventRing.Wait.YIELDING);
+        assertEquals(2, ring.getStages());
+
+        for (long i = 0; i < 1000; i++) {
+            final long sequence = ring.next();
+            ring.get(sequence).value = i;
+            ring.publish(sequence);
+        }
+        ring.close();
+
+        for (final Tick.Recorder recorder : new Tick.Recorder[]{first, second}) {
+            assertEquals(1000, recorder.values.size());
+            for (int i = 0; i < 1000; i++) {
+                assertEquals(i, (long) recorder.values.get(i));
+            }
+        }
+    }
+
+    /**
+     * Every combination, with a ring small enough that producers lap the stages many times
+     */
+    @Test
+    public void producersAndWaits() throws Exception {
+        for (final EventRing.Producers producers : EventRing.Producers.values()) {
+            for (final EventRing.Wait wait : EventRing.Wait.values()) {
+                final ObserverManager mgr = new ObserverManager();
+                final Tick.Sum sum = new Tick.Sum();
+                mgr.addObserver(sum);
+
+                final EventRing<Tick> ring = mgr.ring(Tick.class, Tick::new, 8, producers, wait);
+
+                final int threads = producers == EventRing.Producers.SINGLE ? 1 : 4;
+                // a spinning thread needs a core to itself; on a small machine it gets a time slice
+                final int each = wait == EventRing.Wait.BUSY_SPIN ? 200 : 2000;
+                final List<Thread> publishers = new ArrayList<>();
+                for (int t = 0; t < threads; t++) {
+                    final Thread publisher = new Thread(() -> {
+                        for (long i = 1; i <= each; i++) {
+                            ring.publish((tick, value) -> tick.value = value, i);
+                        }
+                    });
+                    publishers.add(publisher);
+                    publisher.start();
+                }
+                for (final Thread publisher : publishers) {
+                    publisher.join();
+                }
+                ring.close();
+
+                final String combination = producers + " " + wait;
+                assertEquals(combination, threads * each, sum.count);
+                assertEquals(combination, threads * (long) each * (each + 1) / 2, sum.total);
+            }
+        }
+    }
+
+    @Test
+    public void failuresReportedAndStageCarriesOn() {
+        final Logger logger = ObserverManager.logger();
+        final Level level = logger.getLevel();
+        logger.setLevel(Level.OFF);
+
+        try {
+            final ObserverManager mgr = new ObserverManager();
+            final List<ObserverFailed> failures = new CopyOnWriteArrayList<>();
+            mgr.addObserver(new Object() {
+                public void failed(@Observes final ObserverFailed event) {
+                    failures.add(event);
+                }
+            });
+            final Tick.Sum sum = new Tick.Sum() {
+                @Override
+                public void observe(@Observes final Tick tick) {
+                    if (tick.value == 3) throw new IllegalStateException("three");
+                    super.observe(tick);
+                }
+            };
+            mgr.addObserver(sum);
+
+            final EventRing<Tick> ring = mgr.ring(Tick.class, Tick::new, 4);
+            for (long i = 1; i <= 5; i++) {
+                ring.publish((tick, value) -> tick.value = value, i);
+            }
+            ring.close();
+
+            assertEquals(4, sum.count);
+            assertEquals(1 + 2 + 4 + 5, sum.total);
+            assertEquals(1, failures.size());
+            assertEquals("three", failures.get(0).getThrowable().getMessage());
+        } finally {
+            logger.setLevel(level);
+        }
+    }
+
+    @Test
+    public void observersAddedLaterAreNotStages() {
+        final ObserverManager mgr = new ObserverManager();
+        final Tick.Sum before = new Tick.Sum();
+        mgr.addObserver(before);
+
+        final EventRing<Tick> ring = mgr.ring(Tick.class, Tick::new, 4);
+
+        final Tick.Sum after = new Tick.Sum();
+        mgr.addObserver(after);
+
+        ring.publish((tick, value) -> tick.value = value, 7);
+        ring.close();
+
+        assertEquals(7, before.total);
+        assertEquals(0, after.count);
+    }
+
+    @Test
+    public void keyedStage() {
+        final ObserverManager mgr = new ObserverManager();
+        mgr.keyBy(Tick.class, tick -> tick.value % 2 == 0 ? "even" : "odd");
+
+        final Tick.Sum even = new Tick.Sum();
+        final Tick.Sum all = new Tick.Sum();
+        mgr.addObserver(even, "even");
+        mgr.addObserver(all);
+
+        final EventRing<Tick> ring = mgr.ring(Tick.class, Tick::new, 4);
+        for (long i = 1; i <= 6; i++) {
+            ring.publish((tick, value) -> tick.value = value, i);
+        }
+        ring.close();
+
+        assertEquals(2 + 4 + 6, even.total);
+        assertEquals(21, all.total);
+    }
+
+    @Test
+    public void closed() {
+        final ObserverManager mgr = new ObserverManager();
+        final Tick.Sum sum = new Tick.Sum();
+        mgr.addObserver(sum);
+
+        final EventRing<Tick> ring = mgr.ring(Tick.class, Tick::new, 2);
+        ring.publish((tick, value) -> tick.value = value, 1);
+        mgr.shutdown();
+
+        assertEquals(1, sum.total);
+
+        // the ring still has room, but its one stage has gone
+        try {
+            ring.publish((tick, value) -> tick.value = value, 2);
+            fail();
+        } catch (final IllegalStateException e) {
+            assertTrue(e.getMessage().endsWith("is closed"));
+        }
+        assertEquals(1, sum.total);
+    }
+
+    @Test
+    public void nextAfterClose() {
+        final ObserverManager mgr = new ObserverManager();
+        mgr.addObserver(new Tick.Sum());
+
+        final EventRing<Tick> ring = mgr.ring(Tick.class, Tick::new, 8);
+        ring.close();
+
+        try {
+            ring.next();
+            fail();
+        } catch (final IllegalStateException e) {
+            assertEquals("EventRing of " + Tick.class.getName() + " is closed", e.getMessage());
+        }
+    }
+
+    @Test
+    public void closedRingIsForgotten() throws Exception {
+        final ObserverManager mgr = new ObserverManager();
+        mgr.addObserver(new Tick.Sum());
+
+        final WeakReference<EventRing<Tick>> ring = closedRing(mgr);
+        for (int i = 0; i < 50 && ring.get() != null; i++) {
+            java.lang.System.gc();
+            Thread.sleep(10);
+        }
+
+        // nothing in the manager still holds the ring's slots or stages
+        assertNull(ring.get());
+    }
+
+    private static WeakReference<EventRing<Tick>> closedRing(final ObserverManager mgr) {
+        final EventRing<Tick> ring = mgr.ring(Tick.class, Tick::new, 1024);
+        ring.publish((tick, value) -> tick.value = value, 1);
+        ring.close();
+        return new WeakReference<>(ring);
+    }
+
+    @Test
+    public void invalidSize() {
+        try {
+            new ObserverManager().ring(Tick.class, Tick::new, 12);
+            fail();
+        } catch (final IllegalArgumentException e) {
+            assertEquals("ring size must be a power of two: 12", e.getMessage());
+        }
+    }
+
+    public static class Tick {
+        private long value;
+
+        public static class Recorder {
+            private final List<Long> values = new ArrayList<>();
+
+            public void observe(@Observes final Tick tick) {
+                values.add(tick.value);
+            }
+        }
+
+        public static class Sum {
+            private long total;
+            private int count;
+
+            public void observe(@Observes final Tick tick) {
+                total += tick.value;
+                count++;
+            }
+        }
+    }
+}
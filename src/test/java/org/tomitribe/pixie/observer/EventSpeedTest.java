@@ -21,7 +21,7 @@ import java.util.concurrent.TimeUnit;
 
 public class EventSpeedTest extends Assert {
 
-    private static final String format = "%10s %5s %5s %3.0f%%";
+    private static final String format = "%10s %5s %5s %5s %3.0f%%";
 
     @Test
     public void test() throws Exception {
@@ -29,15 +29,14 @@ public class EventSpeedTest extends Assert {
         final long start = System.nanoTime();
         long events = 0;
 
-        System.out.println(String.format(format, "Events", "Obsvs", "Avg", 0d));
-        Stats previous = null;
+        System.out.println(String.format(format, "Events", "Obsvs", "Refl", "Gen", 0d));
         for (int i = 1; i < (64 / 4 + 1); i *= 2) {
-            final Stats stats = time(i);
+            final Stats reflection = time(i, Invokers.Strategy.REFLECTION);
+            final Stats generated = time(i, Invokers.Strategy.GENERATED);
 
-            events += stats.getEvents();
+            events += reflection.getEvents() + generated.getEvents();
 
-            System.out.println(stats.compare(previous));
-            previous = stats;
+            System.out.println(generated.compare(reflection));
         }
 
         final long elapsed = System.nanoTime() - start;
@@ -47,8 +46,8 @@ public class EventSpeedTest extends Assert {
         assertTrue(seconds < 60);
     }
 
-    private Stats time(final int observerCount) {
-        final ObserverManager observers = new ObserverManager();
+    private Stats time(final int observerCount, final Invokers.Strategy strategy) {
+        final ObserverManager observers = new ObserverManager(strategy);
         for (int i = observerCount; i > 0; i--) {
             observers.addObserver(new One());
             observers.addObserver(new Two());
@@ -57,7 +56,7 @@ public class EventSpeedTest extends Assert {
         }
 
         final long start = System.nanoTime();
-        final int max = 5000000;
+        final int max = 2500000;
         for (int i = max; i > 0; i--) {
             observers.fireEvent("");
             observers.fireEvent(i);
@@ -106,7 +105,7 @@ public class EventSpeedTest extends Assert {
         public String compare(final Stats previous) {
             final double change = change(previous);
 
-            return String.format(format, events, observers, eventAverage(), change);
+            return String.format(format, events, observers, previous.eventAverage(), eventAverage(), change);
         }
 
         private double change(final Stats previous) {
@@ -0,0 +1,104 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.tomitribe.pixie.observer;
+
+import org.junit.Assert;
+import org.junit.Assume;
+import org.junit.Test;
+import org.tomitribe.pixie.Observes;
+import org.tomitribe.pixie.event.ObserverFailed;
+
+import java.lang.management.ManagementFactory;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Measures what the failure-recursion guard allocates per fire, using the per-thread allocation
+ * counter of the HotSpot ThreadMXBean.
+ */
+public class FailureGuardAllocationTest extends Assert {
+
+    private static final String format = "%10s %10s %10s";
+
+    @Test
+    public void test() throws Exception {
+        final com.sun.management.ThreadMXBean threads = threads();
+        Assume.assumeNotNull(threads);
+
+        final Logger logger = ObserverManager.logger();
+        final Level level = logger.getLevel();
+        logger.setLevel(Level.OFF); // a LogRecord per failure would drown out the guard
+
+        try {
+            final ObserverManager succeeding = new ObserverManager();
+            succeeding.addObserver(new Succeeding());
+
+            final ObserverManager failing = new ObserverManager();
+            failing.addObserver(new Failing());
+
+            System.out.println(String.format(format, "Events", "Success", "Failure"));
+
+            final int max = 1000000;
+            final long success = allocated(threads, succeeding, max);
+            final long failure = allocated(threads, failing, max);
+
+            System.out.println(String.format(format, max, success / max, failure / max));
+
+            // Nothing is allocated when no observer fails
+            assertTrue(success / max < 8);
+        } finally {
+            logger.setLevel(level);
+        }
+    }
+
+    private static long allocated(final com.sun.management.ThreadMXBean threads, final ObserverManager mgr, final int max) {
+        final long id = Thread.currentThread().getId();
+
+        // warm up, so the measured run is compiled code
+        for (int i = max; i > 0; i--) {
+            mgr.fireEvent("");
+        }
+
+        final long start = threads.getThreadAllocatedBytes(id);
+        for (int i = max; i > 0; i--) {
+            mgr.fireEvent("");
+        }
+        return threads.getThreadAllocatedBytes(id) - start;
+    }
+
+    private static com.sun.management.ThreadMXBean threads() {
+        try {
+            final java.lang.management.ThreadMXBean bean = ManagementFactory.getThreadMXBean();
+            return bean instanceof com.sun.management.ThreadMXBean ? (com.sun.management.ThreadMXBean) bean : null;
+        } catch (final LinkageError e) {
+            return null;
+        }
+    }
+
+    public static class Succeeding {
+        public void observe(@Observes final String event) {
+        }
+    }
+
+    public static class Failing {
+        private final IllegalStateException failure = new IllegalStateException("I always fail");
+
+        public void observe(@Observes final String event) {
+            throw failure;
+        }
+
+        public void failed(@Observes final ObserverFailed event) {
+        }
+    }
+}
@@ -74,6 +74,23 @@ public class InterfaceObserverDispatchTest {
         }
     }
 
+    /** Once C has been fired, the same diamond is caught when the observer registers. */
+    @Test
+    public void diamondThrowsOnRegistrationForKnownEvent() {
+        final ObserverManager observers = new ObserverManager();
+        observers.fireEvent(new C()); // nothing observes it yet
+
+        try {
+            observers.addObserver(new Ambiguous());
+            fail("Expected AmbiguousObserverException");
+        } catch (final Resolver.AmbiguousObserverException e) {
+            assertEquals(true, e.getMessage().contains("$A"));
+            assertEquals(true, e.getMessage().contains("$B"));
+        }
+
+        observers.fireEvent(new C()); // the observer was not registered
+    }
+
     /**
      * A non-@Observes method must never be dispatched, even when its parameter is the
      * most-specific match. The Observer constructor only registers @Observes methods, so
@@ -0,0 +1,137 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.tomitribe.pixie.observer;
+
+import org.junit.Assert;
+import org.junit.Test;
+import org.tomitribe.pixie.observer.ObserverManager.Invocation;
+import org.tomitribe.pixie.observer.ObserverManager.InvocationList;
+
+import java.util.ArrayList;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Times fan-out over the flat InvocationList against the LinkedList it replaced, with several
+ * Invocation classes mixed in so the call site is as megamorphic as a real chain.
+ */
+public class InvocationListSpeedTest extends Assert {
+
+    private static final String format = "%10s %5s %5s %5s %3.0f%%";
+
+    @Test
+    public void test() throws Exception {
+        final long start = System.nanoTime();
+
+        System.out.println(String.format(format, "Events", "Obsvs", "Link", "Flat", 0d));
+        for (final int size : new int[]{1, 2, 3, 4, 8, 16}) {
+            final List<Invocation> invocations = invocations(size);
+
+            final EventSpeedTest.Stats linked = time(new Linked(invocations), size);
+            final EventSpeedTest.Stats flat = time(InvocationList.of(invocations), size);
+
+            System.out.println(flat.compare(linked));
+        }
+
+        final long seconds = TimeUnit.NANOSECONDS.toSeconds(System.nanoTime() - start);
+        assertTrue(seconds < 60);
+    }
+
+    @Test
+    public void shapes() {
+        assertEquals("IGNORED", InvocationList.of(invocations(0)).toString());
+        assertFalse(InvocationList.of(invocations(1)) instanceof InvocationList);
+        assertFalse(InvocationList.of(invocations(2)) instanceof InvocationList);
+        assertTrue(InvocationList.of(invocations(3)) instanceof InvocationList);
+
+        final Counter counter = new Counter();
+        final Invocation nested = InvocationList.of(InvocationList.of(counter, counter), counter,
+                InvocationList.of(counter, counter, counter));
+        assertTrue(nested.toString().startsWith("InvocationList{invocations=6}"));
+
+        nested.invoke("");
+        assertEquals(6, counter.count);
+    }
+
+    private EventSpeedTest.Stats time(final Invocation invocation, final int size) {
+        final int max = 5000000;
+
+        final long start = System.nanoTime();
+        for (int i = max; i > 0; i--) {
+            invocation.invoke(i);
+        }
+        final long total = System.nanoTime() - start;
+
+        return new EventSpeedTest.Stats(total, max, size);
+    }
+
+    private static List<Invocation> invocations(final int size) {
+        final List<Invocation> invocations = new ArrayList<>();
+        for (int i = 0; i < size; i++) {
+            switch (i % 4) {
+                case 0: invocations.add(new Counter()); break;
+                case 1: invocations.add(new Hasher()); break;
+                case 2: invocations.add(new Classer()); break;
+                default: invocations.add(event -> { }); break;
+            }
+        }
+        return invocations;
+    }
+
+    /**
+     * The LinkedList based InvocationList as it was before it was flattened.
+     */
+    private static class Linked implements Invocation {
+        private final List<Invocation> invocations = new LinkedList<>();
+
+        private Linked(final List<Invocation> invocations) {
+            this.invocations.addAll(invocations);
+        }
+
+        @Override
+        public void invoke(final Object event) {
+            for (final Invocation invocation : invocations) {
+                invocation.invoke(event);
+            }
+        }
+    }
+
+    private static class Counter implements Invocation {
+        private int count;
+
+        @Override
+        public void invoke(final Object event) {
+            count++;
+        }
+    }
+
+    private static class Hasher implements Invocation {
+        private int hash;
+
+        @Override
+        public void invoke(final Object event) {
+            hash += event.hashCode();
+        }
+    }
+
+    private static class Classer implements Invocation {
+        private Class<?> last;
+
+        @Override
+        public void invoke(final Object event) {
+            last = event.getClass();
+        }
+    }
+}
@@ -0,0 +1,115 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.tomitribe.pixie.observer;
+
+import org.junit.Test;
+import org.tomitribe.pixie.Observes;
+import org.tomitribe.pixie.event.ObserverFailed;
+
+import java.lang.reflect.Method;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+public class InvokersTest {
+
+    @Test
+    public void everyStrategyDelivers() throws Throwable {
+        final Method method = Listener.class.getMethod("observe", String.class);
+
+        for (final Invokers.Strategy strategy : Invokers.Strategy.values()) {
+            final Listener listener = new Listener();
+            strategy.bind(method).invoke(listener, "hello");
+            assertEquals(strategy.name(), "hello", listener.last);
+        }
+    }
+
+    @Test
+    public void observerExceptionIsNotWrapped() throws Throwable {
+        final Method method = Failing.class.getMethod("observe", String.class);
+
+        for (final Invokers.Strategy strategy : Invokers.Strategy.values()) {
+            try {
+                strategy.bind(method).invoke(new Failing(), "hello");
+                fail(strategy.name());
+            } catch (final IllegalStateException e) {
+                assertEquals("I always fail", e.getMessage());
+            }
+        }
+    }
+
+    @Test
+    public void boundOncePerMethod() throws Exception {
+        final Method method = Listener.class.getMethod("observe", String.class);
+
+        for (final Invokers.Strategy strategy : Invokers.Strategy.values()) {
+            assertSame(strategy.name(), strategy.bind(method), strategy.bind(method));
+        }
+    }
+
+    @Test
+    public void nonVoidObserver() throws Throwable {
+        final Method method = Returning.class.getMethod("observe", String.class);
+        final Returning returning = new Returning();
+
+        Invokers.Strategy.GENERATED.bind(method).invoke(returning, "hello");
+        assertEquals("hello", returning.last);
+    }
+
+    @Test
+    public void failuresReportedForEveryStrategy() {
+        for (final Invokers.Strategy strategy : Invokers.Strategy.values()) {
+            final ObserverManager mgr = new ObserverManager(strategy);
+            final List<Throwable> failures = new ArrayList<>();
+
+            mgr.addObserver(new Failing());
+            mgr.addObserver(new Object() {
+                public void failed(@Observes final ObserverFailed event) {
+                    failures.add(event.getThrowable());
+                }
+            });
+
+            mgr.fireEvent("hello");
+
+            assertEquals(strategy.name(), 1, failures.size());
+            assertTrue(strategy.name(), failures.get(0) instanceof IllegalStateException);
+        }
+    }
+
+    public static class Listener {
+        private String last;
+
+        public void observe(@Observes final String event) {
+            last = event;
+        }
+    }
+
+    public static class Returning {
+        private String last;
+
+        public String observe(@Observes final String event) {
+            return last = event;
+        }
+    }
+
+    public static class Failing {
+        public void observe(@Observes final String event) {
+            throw new IllegalStateException("I always fail");
+        }
+    }
+}
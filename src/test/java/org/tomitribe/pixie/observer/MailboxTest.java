@@ -0,0 +1,283 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.tomitribe.pixie.observer;
+
+import org.junit.After;
+import org.junit.Test;
+import org.tomitribe.pixie.Event;
+import org.tomitribe.pixie.Observes;
+import org.tomitribe.pixie.Overflow;
+import org.tomitribe.pixie.System;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.Properties;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Consumer;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+public class MailboxTest {
+
+    private final ExecutorService pool = Executors.newSingleThreadExecutor();
+
+    @After
+    public void shutdown() {
+        pool.shutdownNow();
+    }
+
+    @Test
+    public void dropNewest() throws Exception {
+        final Slow slow = new Slow() {
+            @Override
+            public void observe(@Observes(async = true, queue = 2, overflow = Overflow.DROP_NEWEST) final String event) {
+                super.observe(event);
+            }
+        };
+        final ObserverManager mgr = fill(slow);
+
+        mgr.fireEvent("d");
+        assertStatus(mgr, 2, 1);
+
+        slow.release.countDown();
+        assertTrue(slow.awaitSeen(3));
+        assertEquals(Arrays.asList("a", "b", "c"), slow.seen);
+    }
+
+    @Test
+    public void dropOldest() throws Exception {
+        final Slow slow = new Slow() {
+            @Override
+            public void observe(@Observes(async = true, queue = 2, overflow = Overflow.DROP_OLDEST) final String event) {
+                super.observe(event);
+            }
+        };
+        final ObserverManager mgr = fill(slow);
+
+        mgr.fireEvent("d");
+        mgr.fireEvent("e");
+        assertStatus(mgr, 2, 2);
+
+        slow.release.countDown();
+        assertTrue(slow.awaitSeen(3));
+        assertEquals(Arrays.asList("a", "d", "e"), slow.seen);
+    }
+
+    @Test
+    public void callerRuns() throws Exception {
+        final Slow slow = new Slow() {
+            @Override
+            public void observe(@Observes(async = true, queue = 2, overflow = Overflow.CALLER_RUNS) final String event) {
+                if ("d".equals(event)) {
+                    assertSame(caller, Thread.currentThread());
+                    seen.add(event);
+                    return;
+                }
+                super.observe(event);
+            }
+        };
+        final ObserverManager mgr = fill(slow);
+
+        mgr.fireEvent("d");
+        assertEquals(Arrays.asList("a", "d"), slow.seen);
+        assertStatus(mgr, 2, 0);
+
+        slow.release.countDown();
+        assertTrue(slow.awaitSeen(4));
+        assertEquals(Arrays.asList("a", "d", "b", "c"), slow.seen);
+    }
+
+    @Test
+    public void block() throws Exception {
+        final Slow slow = new Slow() {
+            @Override
+            public void observe(@Observes(async = true, queue = 2) final String event) {
+                super.observe(event);
+            }
+        };
+        final ObserverManager mgr = fill(slow);
+
+        final Thread producer = new Thread(() -> mgr.fireEvent("d"));
+        producer.start();
+        awaitWaiting(producer);
+        assertStatus(mgr, 2, 0);
+
+        slow.release.countDown();
+        producer.join(10000);
+        assertTrue(slow.awaitSeen(4));
+        assertEquals(Arrays.asList("a", "b", "c", "d"), slow.seen);
+    }
+
+    @Test
+    public void injectedConsumerBlocks() throws Exception {
+        final Properties properties = new Properties();
+        properties.put("producer", "new://" + Producer.class.getName());
+        properties.put("consumer", "new://" + SlowComponent.class.getName());
+
+        final System system = new System(properties);
+        final SlowComponent consumer = system.get(SlowComponent.class);
+        final Producer producer = system.get(Producer.class);
+
+        final Thread thread = new Thread(() -> producer.send("a", "b", "c"));
+        thread.start();
+
+        awaitWaiting(thread);
+        assertEquals(1, system.getMailboxes().size());
+        assertEquals(1, system.getMailboxes().get(0).getDepth());
+
+        consumer.release.countDown();
+        thread.join(10000);
+        assertTrue(consumer.awaitSeen(3));
+        assertEquals(Arrays.asList("a", "b", "c"), consumer.seen);
+    }
+
+    @Test
+    public void rejectedDrainIsRescheduled() throws Exception {
+        final Slow slow = new Slow() {
+            @Override
+            public void observe(@Observes(async = true, queue = 4) final String event) {
+                seen.add(event);
+            }
+        };
+
+        final AtomicBoolean reject = new AtomicBoolean(true);
+        final ObserverManager mgr = new ObserverManager();
+        mgr.setExecutor(command -> {
+            if (reject.get()) throw new RejectedExecutionException("saturated");
+            pool.execute(command);
+        });
+        mgr.addObserver(slow);
+
+        try {
+            mgr.fireEvent("a");
+            fail("RejectedExecutionException expected");
+        } catch (final RejectedExecutionException expected) {
+            // the event stays queued
+        }
+        assertStatus(mgr, 1, 0);
+
+        reject.set(false);
+        mgr.fireEvent("b");
+        assertTrue(slow.awaitSeen(2));
+        assertEquals(Arrays.asList("a", "b"), slow.seen);
+    }
+
+    @Test
+    public void removedObserverHasNoMailbox() {
+        final ObserverManager mgr = new ObserverManager();
+        final Slow slow = new Slow() {
+            @Override
+            public void observe(@Observes(async = true, queue = 8, overflow = Overflow.DROP_OLDEST) final String event) {
+                super.observe(event);
+            }
+        };
+
+        mgr.addObserver(slow);
+        final MailboxStatus status = mgr.getMailboxes().get(0);
+        assertSame(slow, status.getObserver());
+        assertEquals("observe", status.getMethod().getName());
+        assertEquals(8, status.getCapacity());
+        assertEquals(Overflow.DROP_OLDEST, status.getOverflow());
+
+        mgr.removeObserver(slow);
+        assertTrue(mgr.getMailboxes().isEmpty());
+    }
+
+    /**
+     * Fires "a", which the observer starts on and then waits, and queues "b" and "c" behind it
+     * so the two slot mailbox is full.
+     */
+    private ObserverManager fill(final Slow slow) throws InterruptedException {
+        final ObserverManager mgr = new ObserverManager();
+        mgr.setExecutor(pool);
+        mgr.addObserver(slow);
+
+        mgr.fireEvent("a");
+        assertTrue(slow.started.await(10, TimeUnit.SECONDS));
+        mgr.fireEvent("b");
+        mgr.fireEvent("c");
+        assertStatus(mgr, 2, 0);
+        return mgr;
+    }
+
+    private static void assertStatus(final ObserverManager mgr, final int depth, final long dropped) {
+        final List<MailboxStatus> mailboxes = mgr.getMailboxes();
+        assertEquals(1, mailboxes.size());
+        assertEquals(depth, mailboxes.get(0).getDepth());
+        assertEquals(dropped, mailboxes.get(0).getDropped());
+    }
+
+    private static void awaitWaiting(final Thread thread) throws InterruptedException {
+        final long timeout = java.lang.System.currentTimeMillis() + 10000;
+        while (thread.getState() != Thread.State.WAITING) {
+            assertTrue("producer never blocked", java.lang.System.currentTimeMillis() < timeout);
+            Thread.sleep(10);
+        }
+    }
+
+    public static class Slow {
+        protected final Thread caller = Thread.currentThread();
+        protected final List<String> seen = new CopyOnWriteArrayList<>();
+        protected final CountDownLatch started = new CountDownLatch(1);
+        protected final CountDownLatch release = new CountDownLatch(1);
+
+        public void observe(final String event) {
+            seen.add(event);
+            started.countDown();
+            try {
+                release.await(10, TimeUnit.SECONDS);
+            } catch (final InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+
+        boolean awaitSeen(final int count) throws InterruptedException {
+            final long timeout = java.lang.System.currentTimeMillis() + 10000;
+            while (seen.size() < count && java.lang.System.currentTimeMillis() < timeout) {
+                Thread.sleep(10);
+            }
+            return seen.size() == count;
+        }
+    }
+
+    public static class SlowComponent extends Slow {
+        @Override
+        public void observe(@Observes(async = true, queue = 1) final String event) {
+            super.observe(event);
+        }
+    }
+
+    public static class Producer {
+        private final Consumer<String> events;
+
+        public Producer(@Event final Consumer<String> events) {
+            this.events = events;
+        }
+
+        public void send(final String... events) {
+            for (final String event : events) {
+                this.events.accept(event);
+            }
+        }
+    }
+}
@@ -21,6 +21,13 @@ import org.junit.Test;
 
 import java.util.ArrayList;
 import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
 
 public class ObserverListTest {
 
@@ -80,4 +87,65 @@ public class ObserverListTest {
         );
     }
 
+    /**
+     * Readers fire while writers register and unregister. Every fire must see a complete
+     * snapshot: the permanent observer is always reached, and nothing throws.
+     */
+    @Test
+    public void concurrentRegistration() throws Exception {
+        final ObserverManager observers = new ObserverManager();
+        final AtomicInteger permanent = new AtomicInteger();
+
+        observers.addObserver(new Object() {
+            public void observe(@Observes final Integer i) {
+                permanent.incrementAndGet();
+            }
+        });
+
+        final ExecutorService threads = Executors.newFixedThreadPool(6);
+        final AtomicBoolean running = new AtomicBoolean(true);
+        final CountDownLatch start = new CountDownLatch(1);
+        final List<Future<Integer>> fired = new ArrayList<>();
+
+        try {
+            for (int i = 0; i < 2; i++) {
+                threads.submit(() -> {
+                    start.await();
+                    while (running.get()) {
+                        final Object visitor = new Object() {
+                            public void observe(@Observes final Number n) {
+                            }
+                        };
+                        observers.addObserver(visitor);
+                        observers.removeObserver(visitor);
+                    }
+                    return null;
+                });
+            }
+
+            for (int i = 0; i < 4; i++) {
+                fired.add(threads.submit(() -> {
+                    start.await();
+                    int count = 0;
+                    for (; count < 20000; count++) {
+                        observers.fireEvent(count);
+                    }
+                    return count;
+                }));
+            }
+
+            start.countDown();
+
+            int total = 0;
+            for (final Future<Integer> future : fired) {
+                total += future.get(30, TimeUnit.SECONDS);
+            }
+
+            Assert.assertEquals(total, permanent.get());
+        } finally {
+            running.set(false);
+            threads.shutdown();
+            Assert.assertTrue(threads.awaitTermination(30, TimeUnit.SECONDS));
+        }
+    }
 }
@@ -15,13 +15,23 @@ package org.tomitribe.pixie.observer;
 
 import org.junit.Test;
 import org.tomitribe.pixie.Observes;
+import org.tomitribe.pixie.event.AfterEvent;
+import org.tomitribe.pixie.event.BeforeEvent;
 import org.tomitribe.pixie.event.ObserverFailed;
 
+import java.lang.ref.WeakReference;
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.util.ArrayList;
+import java.util.List;
 import java.util.concurrent.CountDownLatch;
 import java.util.function.Consumer;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
 import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
 
 public class ObserverManagerTest {
     @Test
@@ -38,6 +48,92 @@ public class ObserverManagerTest {
         assertNull(observer.last);
     }
 
+    @Test
+    public void unrelatedChainsSurviveRegistration() {
+        final ObserverManager mgr = new ObserverManager();
+        final Obs observer = new Obs();
+        mgr.addObserver(observer);
+
+        final ObserverManager.Invocation strings = mgr.getInvocation(String.class);
+
+        final Object numbers = new Object() {
+            public void observe(@Observes final Number number) {
+            }
+        };
+
+        mgr.addObserver(numbers);
+        assertSame(strings, mgr.getInvocation(String.class));
+
+        mgr.removeObserver(numbers);
+        assertSame(strings, mgr.getInvocation(String.class));
+    }
+
+    @Test
+    public void affectedChainsRebuilt() {
+        final ObserverManager mgr = new ObserverManager();
+        final Obs first = new Obs();
+        final Obs second = new Obs();
+        mgr.addObserver(first);
+
+        final ObserverManager.Invocation strings = mgr.getInvocation(String.class);
+        final ObserverManager.Invocation integers = mgr.getInvocation(Integer.class);
+
+        // an Object observer takes part in every chain
+        final Object everything = new Object() {
+            public void observe(@Observes final Object event) {
+            }
+        };
+        mgr.addObserver(everything);
+        assertNotSame(strings, mgr.getInvocation(String.class));
+        assertNotSame(integers, mgr.getInvocation(Integer.class));
+
+        mgr.addObserver(second);
+        mgr.fireEvent("hello");
+        assertEquals("hello", first.last);
+        assertEquals("hello", second.last);
+
+        mgr.removeObserver(first);
+        mgr.fireEvent("goodbye");
+        assertEquals("hello", first.last);
+        assertEquals("goodbye", second.last);
+    }
+
+    @Test
+    public void phaseWrapperSharedByObservers() {
+        final ObserverManager mgr = new ObserverManager();
+        final List<Object> wrappers = new ArrayList<>();
+
+        for (int i = 0; i < 3; i++) {
+            mgr.addObserver(new Object() {
+                public void before(@Observes final BeforeEvent<String> event) {
+                    wrappers.add(event);
+                }
+
+                public void after(@Observes final AfterEvent<String> event) {
+                    wrappers.add(event);
+                }
+            });
+        }
+
+        mgr.fireEvent("hello");
+
+        assertEquals(6, wrappers.size());
+        assertSame(wrappers.get(0), wrappers.get(1));
+        assertSame(wrappers.get(0), wrappers.get(2));
+        assertSame(wrappers.get(3), wrappers.get(4));
+        assertSame(wrappers.get(3), wrappers.get(5));
+        assertEquals("BeforeEvent{} hello", wrappers.get(0).toString());
+        assertEquals("AfterEvent{} hello", wrappers.get(3).toString());
+    }
+
+    @Test
+    public void flatChainWithoutPhases() {
+        final ObserverManager mgr = new ObserverManager();
+        mgr.addObserver(new Obs());
+
+        assertTrue(mgr.getInvocation(String.class) instanceof ObserverManager.MethodInvocation);
+    }
+
     public static class Obs {
         public volatile String last;
 
@@ -90,6 +186,51 @@ public class ObserverManagerTest {
         mgr.fireEvent(new NoObserverEvent("hello"));
     }
 
+    @Test
+    public void dispatchTableDoesNotPinEventClasses() throws Exception {
+        final ObserverManager mgr = new ObserverManager();
+        final List<Object> events = new ArrayList<>();
+        mgr.addObserver(new Object() {
+            public void observe(@Observes final Object event) {
+                events.add(event);
+            }
+        });
+        events.clear(); // ObserverAdded
+
+        final WeakReference<Class<?>> type = fireFromPlugin(mgr);
+        assertEquals(1, events.size());
+        events.clear();
+
+        for (int i = 0; i < 50 && type.get() != null; i++) {
+            java.lang.System.gc();
+            Thread.sleep(10);
+        }
+
+        assertNull(type.get());
+
+        // the registry, and its table, are still alive
+        mgr.fireEvent("hello");
+        assertEquals(1, events.size());
+    }
+
+    /**
+     * Loads Plugin in a class loader of its own, fires one instance, and lets go of everything
+     * but a weak reference to the class.
+     */
+    private static WeakReference<Class<?>> fireFromPlugin(final ObserverManager mgr) throws Exception {
+        final URL classes = Plugin.class.getProtectionDomain().getCodeSource().getLocation();
+        try (final URLClassLoader loader = new URLClassLoader(new URL[]{classes}, null)) {
+            final Class<?> type = loader.loadClass(Plugin.class.getName());
+            assertNotSame(Plugin.class, type);
+
+            mgr.fireEvent(type.getDeclaredConstructor().newInstance());
+            return new WeakReference<>(type);
+        }
+    }
+
+    public static class Plugin {
+    }
+
     public static class NoObserverEvent {
         private final String value;
         public NoObserverEvent(final String value) {
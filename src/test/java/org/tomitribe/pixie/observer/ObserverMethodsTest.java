@@ -0,0 +1,208 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.tomitribe.pixie.observer;
+
+import org.junit.Test;
+import org.tomitribe.pixie.Observes;
+import org.tomitribe.pixie.event.AfterEvent;
+import org.tomitribe.pixie.event.BeforeEvent;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+public class ObserverMethodsTest {
+
+    @Test
+    public void cachedPerClass() {
+        final ObserverMethods methods = ObserverMethods.of(Listener.class);
+        assertSame(methods, ObserverMethods.of(Listener.class));
+
+        assertFalse(methods.isEmpty());
+        assertEquals(1, methods.getBefore().size());
+        assertEquals(Integer.class, methods.getBefore().get(0).getType());
+        assertEquals(1, methods.getInvoke().size());
+        assertEquals(String.class, methods.getInvoke().get(0).getType());
+        assertEquals(1, methods.getAfter().size());
+        assertEquals(Long.class, methods.getAfter().get(0).getType());
+    }
+
+    @Test
+    public void notAnObserver() {
+        assertTrue(ObserverMethods.of(Object.class).isEmpty());
+        assertTrue(ObserverMethods.of(ArrayList.class).isEmpty());
+
+        final ObserverManager mgr = new ObserverManager();
+        assertFalse(mgr.addObserver(new ArrayList<>()));
+        assertFalse(mgr.addWeakObserver(new ArrayList<>()));
+    }
+
+    @Test
+    public void invalidClassFailsEveryTime() {
+        for (int i = 0; i < 2; i++) {
+            try {
+                ObserverMethods.of(Invalid.class);
+                fail("IllegalArgumentException expected");
+            } catch (final IllegalArgumentException e) {
+                assertTrue(e.getMessage(), e.getMessage().startsWith("@Observes method must have only 1 parameter"));
+            }
+        }
+    }
+
+    @Test
+    public void instancesBindToTheirOwnObserver() {
+        final ObserverManager mgr = new ObserverManager();
+        final List<String> observed = new ArrayList<>();
+        final Listener one = new Listener("one", observed);
+        final Listener two = new Listener("two", observed);
+
+        mgr.addObserver(one);
+        mgr.addObserver(two);
+        mgr.fireEvent("event");
+
+        mgr.removeObserver(one);
+        mgr.fireEvent("again");
+
+        assertEquals(Arrays.asList("one event", "two event", "two again"), observed);
+    }
+
+    @Test
+    public void generatedDispatcher() {
+        final ObserverMethods methods = ObserverMethods.of(Dispatched.class);
+        assertEquals(1, methods.getInvoke().size());
+        assertTrue(methods.getInvoke().get(0).getInvoker() != null);
+        assertEquals(1, methods.getValues().size());
+        assertEquals("count", methods.getValues().get(0).getMethod().getName());
+
+        final ObserverManager mgr = new ObserverManager();
+        final Dispatched dispatched = new Dispatched();
+        mgr.addObserver(dispatched);
+        mgr.fireEvent("hello");
+        mgr.fireLong(3);
+
+        assertEquals(Arrays.asList("dispatched hello", "count 3"), dispatched.observed);
+    }
+
+    @Test
+    public void staleDispatcherIgnored() {
+        final ObserverMethods methods = ObserverMethods.of(Stale.class);
+        assertEquals(1, methods.getInvoke().size());
+        assertEquals(null, methods.getInvoke().get(0).getInvoker());
+    }
+
+    public static class Listener {
+        private final String name;
+        private final List<String> observed;
+
+        public Listener() {
+            this("listener", new ArrayList<>());
+        }
+
+        public Listener(final String name, final List<String> observed) {
+            this.name = name;
+            this.observed = observed;
+        }
+
+        public void before(@Observes final BeforeEvent<Integer> event) {
+        }
+
+        public void observe(@Observes final String event) {
+            observed.add(name + " " + event);
+        }
+
+        public void after(@Observes final AfterEvent<Long> event) {
+        }
+    }
+
+    public static class Invalid {
+        public void observe(@Observes final String event, final String other) {
+        }
+    }
+}
+
+class Dispatched {
+    final List<String> observed = new ArrayList<>();
+
+    public void observe(@Observes final String event) {
+        observed.add("direct " + event);
+    }
+
+    public void count(@Observes final long value) {
+        observed.add("count " + value);
+    }
+}
+
+/**
+ * Stands in for the class pixie-processor would generate for Dispatched.
+ */
+class Dispatched$$PixieDispatcher implements ObserverDispatcher {
+
+    public Dispatched$$PixieDispatcher() {
+    }
+
+    @Override
+    public String[] methods() {
+        return new String[]{"observe"};
+    }
+
+    @Override
+    public Class<?>[] parameters() {
+        return new Class<?>[]{String.class};
+    }
+
+    @Override
+    public Class<?>[] events() {
+        return new Class<?>[]{String.class};
+    }
+
+    @Override
+    public String[] values() {
+        return new String[]{"count"};
+    }
+
+    @Override
+    public Class<?>[] valueTypes() {
+        return new Class<?>[]{long.class};
+    }
+
+    @Override
+    public void dispatch(final int method, final Object observer, final Object event) {
+        ((Dispatched) observer).observed.add("dispatched " + event);
+    }
+}
+
+class Stale {
+    public void observe(@Observes final String event) {
+    }
+}
+
+/**
+ * Generated for an older Stale, whose observer method had another name.
+ */
+class Stale$$PixieDispatcher extends Dispatched$$PixieDispatcher {
+
+    public Stale$$PixieDispatcher() {
+    }
+
+    @Override
+    public String[] methods() {
+        return new String[]{"onString"};
+    }
+}
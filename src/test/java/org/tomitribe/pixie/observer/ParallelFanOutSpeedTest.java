@@ -0,0 +1,91 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.tomitribe.pixie.observer;
+
+import org.junit.Assert;
+import org.junit.Test;
+import org.tomitribe.pixie.Observes;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Times firing an event to observers that each do a few microseconds of work, delivered one
+ * after another and then fanned out over the common ForkJoinPool. Per-event latency should fall
+ * as observers are added, up to the number of processors.
+ */
+public class ParallelFanOutSpeedTest extends Assert {
+
+    private static final String format = "%10s %5s %5s %5s %3.0f%%";
+
+    @Test
+    public void test() throws Exception {
+        final long start = System.nanoTime();
+
+        System.out.println(String.format(format, "Events", "Obsvs", "Serl", "Para", 0d));
+        for (final int size : new int[]{1, 2, 4, 8, 16, 32}) {
+            final EventSpeedTest.Stats serial = time(size, false);
+            final EventSpeedTest.Stats parallel = time(size, true);
+
+            System.out.println(parallel.compare(serial));
+        }
+
+        final long seconds = TimeUnit.NANOSECONDS.toSeconds(System.nanoTime() - start);
+        assertTrue(seconds < 60);
+    }
+
+    private EventSpeedTest.Stats time(final int observerCount, final boolean parallel) {
+        final ObserverManager observers = new ObserverManager();
+        if (parallel) observers.parallel(Work.class);
+
+        for (int i = observerCount; i > 0; i--) {
+            observers.addObserver(new Busy());
+        }
+
+        final int max = 2000;
+        final Work work = new Work(20000);
+
+        // warm up
+        for (int i = max / 10; i > 0; i--) {
+            observers.fireEvent(work);
+        }
+
+        final long start = System.nanoTime();
+        for (int i = max; i > 0; i--) {
+            observers.fireEvent(work);
+        }
+        final long total = System.nanoTime() - start;
+
+        return new EventSpeedTest.Stats(total, max, observerCount);
+    }
+
+    public static class Work {
+        private final int iterations;
+
+        public Work(final int iterations) {
+            this.iterations = iterations;
+        }
+    }
+
+    public static class Busy {
+        private volatile long sink;
+
+        public void observe(@Observes final Work work) {
+            long x = sink + 1;
+            for (int i = work.iterations; i > 0; i--) {
+                x = x * 6364136223846793005L + 1442695040888963407L;
+            }
+            sink = x;
+        }
+    }
+}
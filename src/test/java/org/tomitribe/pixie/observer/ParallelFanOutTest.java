@@ -0,0 +1,236 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.tomitribe.pixie.observer;
+
+import org.junit.After;
+import org.junit.Test;
+import org.tomitribe.pixie.Observes;
+import org.tomitribe.pixie.event.AfterEvent;
+import org.tomitribe.pixie.event.BeforeEvent;
+import org.tomitribe.pixie.event.ObserverFailed;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CyclicBarrier;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class ParallelFanOutTest {
+
+    private final ForkJoinPool pool = new ForkJoinPool(4);
+
+    @After
+    public void shutdown() {
+        pool.shutdownNow();
+    }
+
+    /**
+     * Each observer waits for all four to arrive, which only happens if they run at once
+     */
+    @Test
+    public void observersRunTogether() {
+        final ObserverManager mgr = new ObserverManager();
+        mgr.parallel(Order.class, pool);
+
+        final CyclicBarrier barrier = new CyclicBarrier(4);
+        final List<Party> parties = new ArrayList<>();
+        for (int i = 0; i < 4; i++) {
+            final Party party = new Party(barrier);
+            parties.add(party);
+            mgr.addObserver(party);
+        }
+
+        mgr.fireEvent(new Order(1));
+
+        final Set<Thread> threads = new HashSet<>();
+        for (final Party party : parties) {
+            assertTrue(party.arrived);
+            threads.add(party.thread);
+        }
+        assertEquals(4, threads.size());
+        assertTrue(threads.contains(Thread.currentThread()));
+    }
+
+    @Test
+    public void returnsWhenAllAreDone() {
+        final ObserverManager mgr = new ObserverManager();
+        mgr.parallel(Order.class, pool);
+
+        final List<Integer> observed = new CopyOnWriteArrayList<>();
+        for (int i = 0; i < 8; i++) {
+            mgr.addObserver(new Slow(observed));
+        }
+
+        mgr.fireEvent(new Order(1));
+        assertEquals(8, observed.size());
+
+        mgr.fireEvent(new Order(2));
+        assertEquals(16, observed.size());
+    }
+
+    @Test
+    public void phasesStayInOrder() {
+        final ObserverManager mgr = new ObserverManager();
+        mgr.parallel(Order.class, pool);
+
+        final List<String> observed = Collections.synchronizedList(new ArrayList<>());
+        mgr.addObserver(new Object() {
+            public void before(@Observes final BeforeEvent<Order> event) {
+                observed.add("before");
+            }
+
+            public void after(@Observes final AfterEvent<Order> event) {
+                observed.add("after");
+            }
+        });
+        for (int i = 0; i < 6; i++) {
+            mgr.addObserver(new Slow(new CopyOnWriteArrayList<>()) {
+                @Override
+                public void observe(@Observes final Order order) {
+                    super.observe(order);
+                    observed.add("invoke");
+                }
+            });
+        }
+
+        mgr.fireEvent(new Order(1));
+
+        assertEquals(8, observed.size());
+        assertEquals("before", observed.get(0));
+        assertEquals("after", observed.get(7));
+        assertEquals(Collections.nCopies(6, "invoke"), observed.subList(1, 7));
+    }
+
+    @Test
+    public void everyFailureIsReported() {
+        final ObserverManager mgr = new ObserverManager();
+        mgr.parallel(Order.class, pool);
+
+        final List<ObserverFailed> failures = new CopyOnWriteArrayList<>();
+        mgr.addObserver(new Object() {
+            public void failed(@Observes final ObserverFailed event) {
+                failures.add(event);
+            }
+        });
+
+        final List<Integer> observed = new CopyOnWriteArrayList<>();
+        for (int i = 0; i < 3; i++) {
+            mgr.addObserver(new Failing());
+            mgr.addObserver(new Slow(observed));
+        }
+
+        mgr.fireEvent(new Order(1));
+
+        assertEquals(3, failures.size());
+        assertEquals(3, observed.size());
+        for (final ObserverFailed failure : failures) {
+            assertTrue(failure.getThrowable() instanceof IllegalStateException);
+        }
+    }
+
+    @Test
+    public void subtypesAndOtherTypes() {
+        final ObserverManager mgr = new ObserverManager();
+        mgr.parallel(Order.class, pool);
+
+        final Set<Thread> threads = Collections.synchronizedSet(new HashSet<>());
+        for (int i = 0; i < 8; i++) {
+            mgr.addObserver(new Object() {
+                public void order(@Observes final Order order) {
+                    threads.add(Thread.currentThread());
+                    pause();
+                }
+
+                public void string(@Observes final String string) {
+                    threads.add(Thread.currentThread());
+                }
+            });
+        }
+
+        mgr.fireEvent("serial");
+        assertEquals(Collections.singleton(Thread.currentThread()), threads);
+
+        threads.clear();
+        mgr.fireEvent(new RushOrder(1));
+        assertTrue(threads.size() > 1);
+    }
+
+    private static void pause() {
+        try {
+            Thread.sleep(20);
+        } catch (final InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    public static class Order {
+        private final int number;
+
+        public Order(final int number) {
+            this.number = number;
+        }
+
+        public int getNumber() {
+            return number;
+        }
+    }
+
+    public static class RushOrder extends Order {
+        public RushOrder(final int number) {
+            super(number);
+        }
+    }
+
+    public static class Party {
+        private final CyclicBarrier barrier;
+        private volatile boolean arrived;
+        private volatile Thread thread;
+
+        public Party(final CyclicBarrier barrier) {
+            this.barrier = barrier;
+        }
+
+        public void observe(@Observes final Order order) throws Exception {
+            thread = Thread.currentThread();
+            barrier.await(10, TimeUnit.SECONDS);
+            arrived = true;
+        }
+    }
+
+    public static class Slow {
+        private final List<Integer> observed;
+
+        public Slow(final List<Integer> observed) {
+            this.observed = observed;
+        }
+
+        public void observe(@Observes final Order order) {
+            pause();
+            observed.add(order.getNumber());
+        }
+    }
+
+    public static class Failing {
+        public void observe(@Observes final Order order) {
+            throw new IllegalStateException("failed " + order.getNumber());
+        }
+    }
+}
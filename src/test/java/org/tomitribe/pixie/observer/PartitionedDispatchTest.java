@@ -0,0 +1,371 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.tomitribe.pixie.observer;
+
+import org.junit.Test;
+import org.tomitribe.pixie.Component;
+import org.tomitribe.pixie.Observes;
+import org.tomitribe.pixie.Param;
+import org.tomitribe.pixie.System;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+public class PartitionedDispatchTest {
+
+    @Test
+    public void orderedWithinKey() throws Exception {
+        final ObserverManager mgr = new ObserverManager();
+        mgr.setLanes(4, 16);
+        mgr.partition(Order.class, Order::getCustomer);
+
+        final int customers = 10;
+        final int orders = 500;
+        final CountDownLatch done = new CountDownLatch(customers * orders);
+        final Map<String, List<Integer>> seen = new ConcurrentHashMap<>();
+        final Map<String, List<Thread>> threads = new ConcurrentHashMap<>();
+
+        mgr.addObserver(new Object() {
+            public void observe(@Observes final Order order) {
+                // no locks: a customer's orders never run concurrently
+                seen.computeIfAbsent(order.getCustomer(), c -> new ArrayList<>()).add(order.getNumber());
+                threads.computeIfAbsent(order.getCustomer(), c -> new CopyOnWriteArrayList<>()).add(Thread.currentThread());
+                done.countDown();
+            }
+        });
+
+        for (int number = 0; number < orders; number++) {
+            for (int customer = 0; customer < customers; customer++) {
+                mgr.fireEvent(new Order("customer" + customer, number));
+            }
+        }
+
+        assertTrue(done.await(30, TimeUnit.SECONDS));
+
+        for (int customer = 0; customer < customers; customer++) {
+            final List<Integer> numbers = seen.get("customer" + customer);
+            assertEquals(orders, numbers.size());
+            for (int i = 0; i < orders; i++) {
+                assertEquals(i, (int) numbers.get(i));
+            }
+
+            final List<Thread> lane = threads.get("customer" + customer);
+            for (final Thread thread : lane) {
+                assertSame(lane.get(0), thread);
+            }
+        }
+
+        mgr.shutdown();
+    }
+
+    @Test
+    public void differentKeysRunInParallel() throws Exception {
+        final ObserverManager mgr = new ObserverManager();
+        mgr.setLanes(2, 16);
+        mgr.partition(Order.class, Order::getCustomer);
+
+        // two customers that hash to different lanes
+        final String blocked = "customer0";
+        String other = null;
+        for (int i = 1; other == null; i++) {
+            if (Lanes.index("customer" + i, 2) != Lanes.index(blocked, 2)) other = "customer" + i;
+        }
+        final String free = other;
+
+        final CountDownLatch release = new CountDownLatch(1);
+        final CountDownLatch freeDone = new CountDownLatch(1);
+        mgr.addObserver(new Object() {
+            public void observe(@Observes final Order order) throws InterruptedException {
+                if (order.getCustomer().equals(blocked)) release.await(10, TimeUnit.SECONDS);
+                if (order.getCustomer().equals(free)) freeDone.countDown();
+            }
+        });
+
+        mgr.fireEvent(new Order(blocked, 1));
+        mgr.fireEvent(new Order(free, 1));
+
+        // the free customer is delivered while the blocked one still holds its lane
+        assertTrue(freeDone.await(10, TimeUnit.SECONDS));
+        release.countDown();
+        mgr.shutdown();
+    }
+
+    @Test
+    public void subtypesAndUnpartitioned() throws Exception {
+        final ObserverManager mgr = new ObserverManager();
+        mgr.partition(Order.class, Order::getCustomer);
+
+        final List<Thread> threads = new CopyOnWriteArrayList<>();
+        final CountDownLatch done = new CountDownLatch(1);
+        mgr.addObserver(new Object() {
+            public void rush(@Observes final RushOrder order) {
+                threads.add(Thread.currentThread());
+                done.countDown();
+            }
+
+            public void string(@Observes final String string) {
+                threads.add(Thread.currentThread());
+            }
+        });
+
+        mgr.fireEvent("not partitioned");
+        assertSame(Thread.currentThread(), threads.get(0));
+
+        mgr.fireEvent(new RushOrder("customer", 1));
+        assertTrue(done.await(10, TimeUnit.SECONDS));
+        assertNotSame(Thread.currentThread(), threads.get(1));
+
+        mgr.shutdown();
+    }
+
+    @Test
+    public void fireEventAsyncCompletesAfterDelivery() throws Exception {
+        final ObserverManager mgr = new ObserverManager();
+        mgr.partition(Order.class, Order::getCustomer);
+
+        final List<Order> delivered = new CopyOnWriteArrayList<>();
+        mgr.addObserver(new Object() {
+            public void observe(@Observes final Order order) {
+                delivered.add(order);
+            }
+        });
+
+        final Order order = new Order("customer", 1);
+        assertSame(order, mgr.fireEventAsync(order).get(10, TimeUnit.SECONDS));
+        assertEquals(1, delivered.size());
+
+        mgr.shutdown();
+    }
+
+    @Test
+    public void fullOwnLaneFailsFast() throws Exception {
+        final ObserverManager mgr = new ObserverManager();
+        mgr.setLanes(1, 1);
+        mgr.partition(Order.class, Order::getCustomer);
+
+        final List<Integer> observed = new CopyOnWriteArrayList<>();
+        final List<Throwable> failures = new CopyOnWriteArrayList<>();
+        final CountDownLatch done = new CountDownLatch(2);
+        mgr.addObserver(new Object() {
+            public void observe(@Observes final Order order) {
+                observed.add(order.getNumber());
+                if (order.getNumber() != 0) {
+                    done.countDown();
+                    return;
+                }
+
+                // a lane refilling its own full queue could only wait for itself
+                try {
+                    for (int i = 1; i <= 20; i++) {
+                        mgr.fireEvent(new Order(order.getCustomer(), i));
+                    }
+                } catch (final IllegalStateException e) {
+                    failures.add(e);
+                }
+                done.countDown();
+            }
+        });
+
+        mgr.fireEvent(new Order("customer", 0));
+        assertTrue(done.await(10, TimeUnit.SECONDS));
+        mgr.shutdown();
+
+        assertEquals(1, failures.size());
+        assertTrue(failures.get(0).getMessage(), failures.get(0).getMessage().contains("queue is full"));
+
+        // the one event that fitted was still delivered in order, on the lane
+        assertEquals(Arrays.asList(0, 1), observed);
+    }
+
+    @Test
+    public void fireAfterShutdownDeliversOnCaller() throws Exception {
+        final ObserverManager mgr = new ObserverManager();
+        mgr.setLanes(1, 1);
+        mgr.partition(Order.class, Order::getCustomer);
+
+        final List<Thread> threads = new CopyOnWriteArrayList<>();
+        mgr.addObserver(new Object() {
+            public void observe(@Observes final Order order) {
+                threads.add(Thread.currentThread());
+            }
+        });
+
+        mgr.fireEventAsync(new Order("customer", 0)).get(10, TimeUnit.SECONDS);
+        mgr.shutdown();
+
+        // more than the lane could ever have queued, none of them lost or stuck
+        for (int i = 1; i <= 5; i++) {
+            mgr.fireEvent(new Order("customer", i));
+        }
+        assertSame(Thread.currentThread(), threads.get(threads.size() - 1));
+        assertEquals(6, threads.size());
+
+        assertSame(mgr.fireEventAsync(new Order("customer", 6)).get(10, TimeUnit.SECONDS).getClass(), Order.class);
+        assertEquals(7, threads.size());
+    }
+
+    @Test
+    public void fireWhileShuttingDown() throws Exception {
+        final ObserverManager mgr = new ObserverManager();
+        mgr.setLanes(2, 1);
+        mgr.partition(Order.class, Order::getCustomer);
+
+        // slow enough that firers are waiting on full queues when shutdown comes
+        final AtomicInteger observed = new AtomicInteger();
+        mgr.addObserver(new Object() {
+            public void observe(@Observes final Order order) throws InterruptedException {
+                observed.incrementAndGet();
+                Thread.sleep(1);
+            }
+        });
+
+        final int firers = 4;
+        final int orders = 50;
+        final List<CompletableFuture<Order>> futures = new CopyOnWriteArrayList<>();
+        final List<Thread> threads = new ArrayList<>();
+        for (int i = 0; i < firers; i++) {
+            final String customer = "customer" + i;
+            threads.add(new Thread(() -> {
+                for (int number = 0; number < orders; number++) {
+                    futures.add(mgr.fireEventAsync(new Order(customer, number)));
+                }
+            }));
+        }
+
+        threads.forEach(Thread::start);
+        Thread.sleep(20);
+        mgr.shutdown();
+        for (final Thread thread : threads) {
+            thread.join(30000);
+        }
+
+        // each one delivered exactly once, by its lane before it stopped or by the firing thread after
+        for (final CompletableFuture<Order> future : futures) {
+            future.get(10, TimeUnit.SECONDS);
+        }
+        assertEquals(firers * orders, futures.size());
+        assertEquals(firers * orders, observed.get());
+    }
+
+    @Test
+    public void shutdownFromLane() throws Exception {
+        final ObserverManager mgr = new ObserverManager();
+        mgr.setLanes(1, 4);
+        mgr.partition(Order.class, Order::getCustomer);
+
+        final List<Thread> lanes = new CopyOnWriteArrayList<>();
+        mgr.addObserver(new Object() {
+            public void observe(@Observes final Order order) {
+                lanes.add(Thread.currentThread());
+                mgr.shutdown();
+            }
+        });
+
+        mgr.fireEventAsync(new Order("customer", 1)).get(10, TimeUnit.SECONDS);
+
+        final Thread lane = lanes.get(0);
+        assertTrue(lane.getName().startsWith("pixie-lane-"));
+        lane.join(10000);
+        assertFalse(lane.isAlive());
+    }
+
+    @Test
+    public void lanesFromProperties() throws Exception {
+        final Properties properties = new Properties();
+        properties.put("pixie.lanes", "3");
+        properties.put("pixie.lanes.queue", "8");
+        properties.put("orders", "new://" + OrderService.class.getName());
+
+        final System system = new System(properties);
+        final OrderService service = system.get(OrderService.class);
+
+        system.fireEvent(new Order("customer", 1));
+        assertTrue(service.received.await(10, TimeUnit.SECONDS));
+        assertTrue(service.thread.getName().startsWith("pixie-lane-"));
+
+        system.close();
+    }
+
+    @Test
+    public void invalidLaneProperties() {
+        assertInvalid("pixie.lanes", "four", "Property 'pixie.lanes' must be a whole number of at least 1: four");
+        assertInvalid("pixie.lanes", "0", "Property 'pixie.lanes' must be a whole number of at least 1: 0");
+        assertInvalid("pixie.lanes.queue", "-5", "Property 'pixie.lanes.queue' must be a whole number of at least 1: -5");
+    }
+
+    private static void assertInvalid(final String name, final String value, final String message) {
+        final Properties properties = new Properties();
+        properties.put(name, value);
+        try {
+            new System(properties);
+            fail("IllegalArgumentException expected");
+        } catch (final IllegalArgumentException e) {
+            assertEquals(message, e.getMessage());
+        }
+    }
+
+    public static class OrderService {
+        private final CountDownLatch received = new CountDownLatch(1);
+        private volatile Thread thread;
+
+        public OrderService(@Param("system") @Component final System system) {
+            system.partition(Order.class, Order::getCustomer);
+        }
+
+        public void observe(@Observes final Order order) {
+            thread = Thread.currentThread();
+            received.countDown();
+        }
+    }
+
+    public static class Order {
+        private final String customer;
+        private final int number;
+
+        public Order(final String customer, final int number) {
+            this.customer = customer;
+            this.number = number;
+        }
+
+        public String getCustomer() {
+            return customer;
+        }
+
+        public int getNumber() {
+            return number;
+        }
+    }
+
+    public static class RushOrder extends Order {
+        public RushOrder(final String customer, final int number) {
+            super(customer, number);
+        }
+    }
+}
@@ -0,0 +1,265 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.tomitribe.pixie.observer;
+
+import org.junit.Assume;
+import org.junit.Test;
+import org.tomitribe.pixie.Event;
+import org.tomitribe.pixie.Observes;
+import org.tomitribe.pixie.event.ObserverFailed;
+
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Properties;
+import java.util.function.DoubleConsumer;
+import java.util.function.LongConsumer;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+public class PrimitiveEventTest {
+
+    @Test
+    public void longsAndDoubles() {
+        final ObserverManager mgr = new ObserverManager();
+        final List<String> observed = new ArrayList<>();
+        mgr.addObserver(new Gauge("a", observed));
+        mgr.addObserver(new Gauge("b", observed));
+
+        mgr.fireLong(42);
+        mgr.fireDouble(0.5);
+
+        assertEquals(Arrays.asList("a long 42", "b long 42", "a double 0.5", "b double 0.5"), observed);
+    }
+
+    /**
+     * Values are not events: an Object or Long observer does not see them, nor the reverse
+     */
+    @Test
+    public void separateFromEvents() {
+        final ObserverManager mgr = new ObserverManager();
+        final List<String> observed = new ArrayList<>();
+        mgr.addObserver(new Object() {
+            public void object(@Observes final Object event) {
+                observed.add("object " + event);
+            }
+
+            public void boxed(@Observes final Long event) {
+                observed.add("boxed " + event);
+            }
+
+            public void value(@Observes final long value) {
+                observed.add("value " + value);
+            }
+        });
+        observed.clear(); // the ObserverAdded event
+
+        mgr.fireLong(1);
+        mgr.fireEvent(2L);
+
+        assertEquals(Arrays.asList("value 1", "boxed 2"), observed);
+    }
+
+    @Test
+    public void failureReported() {
+        final ObserverManager mgr = new ObserverManager();
+        final List<ObserverFailed> failures = new ArrayList<>();
+        mgr.addObserver(new Object() {
+            public void failed(@Observes final ObserverFailed event) {
+                failures.add(event);
+            }
+        });
+        mgr.addObserver(new Object() {
+            public void value(@Observes final double value) {
+                throw new IllegalStateException("too hot " + value);
+            }
+        });
+
+        mgr.fireDouble(99.5);
+
+        assertEquals(1, failures.size());
+        assertEquals(99.5, failures.get(0).getEvent());
+        assertEquals("too hot 99.5", failures.get(0).getThrowable().getMessage());
+    }
+
+    @Test
+    public void removed() {
+        final ObserverManager mgr = new ObserverManager();
+        final List<String> observed = new ArrayList<>();
+        final Gauge gauge = new Gauge("a", observed);
+        mgr.addObserver(gauge);
+
+        mgr.fireLong(1);
+        mgr.removeObserver(gauge);
+        mgr.fireLong(2);
+
+        assertEquals(Arrays.asList("a long 1"), observed);
+    }
+
+    @Test
+    public void everyStrategy() {
+        for (final Invokers.Strategy strategy : Invokers.Strategy.values()) {
+            final ObserverManager mgr = new ObserverManager(strategy);
+            final List<String> observed = new ArrayList<>();
+            mgr.addObserver(new Gauge("a", observed));
+
+            mgr.fireLong(Long.MAX_VALUE);
+            mgr.fireDouble(-1.25);
+
+            assertEquals(strategy.name(), Arrays.asList("a long " + Long.MAX_VALUE, "a double -1.25"), observed);
+        }
+    }
+
+    @Test
+    public void invalid() {
+        final ObserverManager mgr = new ObserverManager();
+
+        assertInvalid(mgr, new Object() {
+            public void value(@Observes final int value) {
+            }
+        }, "@Observes method parameter must be a concrete class, long or double (not another primitive)");
+
+        assertInvalid(mgr, new Object() {
+            public void value(@Observes(async = true) final long value) {
+            }
+        }, "@Observes long and double methods cannot be async");
+
+        assertInvalid(mgr, new Object() {
+            public void value(@Observes(key = "cpu") final double value) {
+            }
+        }, "@Observes long and double methods cannot be keyed");
+    }
+
+    private static void assertInvalid(final ObserverManager mgr, final Object observer, final String message) {
+        try {
+            mgr.addObserver(observer);
+            fail();
+        } catch (final IllegalArgumentException e) {
+            assertTrue(e.getMessage(), e.getMessage().startsWith(message));
+        }
+    }
+
+    @Test
+    public void injected() {
+        final Properties properties = new Properties();
+        properties.put("meter", "new://" + Meter.class.getName());
+        properties.put("gauge", "new://" + Recorder.class.getName());
+        final org.tomitribe.pixie.System system = new org.tomitribe.pixie.System(properties);
+
+        final Recorder recorder = system.get(Recorder.class);
+        system.get(Meter.class).tick(7, 2.5);
+        system.fireLong(8);
+
+        assertEquals(Arrays.asList("long 7", "double 2.5", "long 8"), recorder.observed);
+    }
+
+    /**
+     * Measures what a fireLong to a single observer allocates, with the per-thread allocation
+     * counter of the HotSpot ThreadMXBean.
+     */
+    @Test
+    public void noAllocation() {
+        final com.sun.management.ThreadMXBean threads = threads();
+        Assume.assumeNotNull(threads);
+
+        final ObserverManager mgr = new ObserverManager();
+        final Sum sum = new Sum();
+        mgr.addObserver(sum);
+
+        final int max = 1000000;
+        final long id = Thread.currentThread().getId();
+
+        // warm up, so the measured run is compiled code
+        for (int i = max; i > 0; i--) {
+            mgr.fireLong(i);
+        }
+
+        final long start = threads.getThreadAllocatedBytes(id);
+        for (int i = max; i > 0; i--) {
+            mgr.fireLong(i);
+        }
+        final long allocated = threads.getThreadAllocatedBytes(id) - start;
+
+        System.out.printf("fireLong allocated %s bytes per event%n", allocated / max);
+
+        // a boxed Long alone would be 16 bytes each
+        assertTrue(allocated / max < 8);
+        assertTrue(sum.total != 0);
+    }
+
+    private static com.sun.management.ThreadMXBean threads() {
+        try {
+            final java.lang.management.ThreadMXBean bean = ManagementFactory.getThreadMXBean();
+            return bean instanceof com.sun.management.ThreadMXBean ? (com.sun.management.ThreadMXBean) bean : null;
+        } catch (final LinkageError e) {
+            return null;
+        }
+    }
+
+    public static class Gauge {
+        private final String name;
+        private final List<String> observed;
+
+        public Gauge(final String name, final List<String> observed) {
+            this.name = name;
+            this.observed = observed;
+        }
+
+        public void count(@Observes final long value) {
+            observed.add(name + " long " + value);
+        }
+
+        public void measure(@Observes final double value) {
+            observed.add(name + " double " + value);
+        }
+    }
+
+    public static class Sum {
+        private long total;
+
+        public void add(@Observes final long value) {
+            total += value;
+        }
+    }
+
+    public static class Meter {
+        private final LongConsumer counts;
+        private final DoubleConsumer measurements;
+
+        public Meter(@Event final LongConsumer counts, @Event final DoubleConsumer measurements) {
+            this.counts = counts;
+            this.measurements = measurements;
+        }
+
+        public void tick(final long count, final double measurement) {
+            counts.accept(count);
+            measurements.accept(measurement);
+        }
+    }
+
+    public static class Recorder {
+        private final List<String> observed = new ArrayList<>();
+
+        public void count(@Observes final long value) {
+            observed.add("long " + value);
+        }
+
+        public void measure(@Observes final double value) {
+            observed.add("double " + value);
+        }
+    }
+}
@@ -307,6 +307,27 @@ public class ResolverTest {
         assertNull(Resolver.bestMatch(String.class, candidates(NoMatch.class)));
     }
 
+    /** Interfaces have no superclass, yet Object is still a supertype of every one of them. */
+    @Test
+    public void interfaceEventMatchesObject() {
+        final List<Class> candidates = new ArrayList<>();
+        candidates.add(Object.class);
+        candidates.add(String.class);
+
+        assertEquals(Object.class, Resolver.bestMatch(Runnable.class, candidates));
+    }
+
+    /** Array covariance is outside the supertype index and falls back to isAssignableFrom. */
+    @Test
+    public void arrayEventUsesCovariance() {
+        final List<Class> candidates = new ArrayList<>();
+        candidates.add(Object.class);
+        candidates.add(Object[].class);
+        candidates.add(CharSequence[].class);
+
+        assertEquals(CharSequence[].class, Resolver.bestMatch(String[].class, candidates));
+    }
+
     // ============================================================
     // Helpers
     // ============================================================
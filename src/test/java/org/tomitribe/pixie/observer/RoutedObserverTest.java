@@ -0,0 +1,198 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.tomitribe.pixie.observer;
+
+import org.junit.Test;
+import org.tomitribe.pixie.Observes;
+import org.tomitribe.pixie.event.AfterEvent;
+import org.tomitribe.pixie.event.BeforeEvent;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+
+public class RoutedObserverTest {
+
+    @Test
+    public void registeredWithKey() {
+        final ObserverManager mgr = new ObserverManager();
+        final List<String> observed = new ArrayList<>();
+        mgr.keyBy(Order.class, Order::getTenant);
+
+        mgr.addObserver(new Tenant("acme", observed), "acme");
+        mgr.addObserver(new Tenant("initech", observed), "initech");
+        mgr.addObserver(new Tenant("all", observed));
+
+        mgr.fireEvent(new Order("acme", 1));
+        mgr.fireEvent(new Order("initech", 2));
+        mgr.fireEvent(new Order("umbrella", 3));
+
+        assertEquals(Arrays.asList(
+                "acme 1", "all 1",
+                "initech 2", "all 2",
+                "all 3"), observed);
+    }
+
+    @Test
+    public void keyedRunWhereTheFirstWasRegistered() {
+        final ObserverManager mgr = new ObserverManager();
+        final List<String> observed = new ArrayList<>();
+        mgr.keyBy(Order.class, Order::getTenant);
+
+        mgr.addObserver(new Tenant("first", observed));
+        mgr.addObserver(new Tenant("acme", observed), "acme");
+        mgr.addObserver(new Tenant("middle", observed));
+        mgr.addObserver(new Tenant("initech", observed), "initech");
+        mgr.addObserver(new Tenant("acme2", observed), "acme");
+        mgr.addObserver(new Tenant("last", observed));
+
+        mgr.fireEvent(new Order("acme", 1));
+        mgr.fireEvent(new Order("initech", 2));
+
+        // the matching keyed observers, in registration order, in the first keyed one's place
+        assertEquals(Arrays.asList(
+                "first 1", "acme 1", "acme2 1", "middle 1", "last 1",
+                "first 2", "initech 2", "middle 2", "last 2"), observed);
+    }
+
+    @Test
+    public void sameKeyManyObservers() {
+        final ObserverManager mgr = new ObserverManager();
+        final List<String> observed = new ArrayList<>();
+        mgr.keyBy(Order.class, Order::getTenant);
+
+        mgr.addObserver(new Tenant("one", observed), "acme");
+        mgr.addObserver(new Tenant("two", observed), "acme");
+
+        mgr.fireEvent(new Order("acme", 1));
+
+        assertEquals(Arrays.asList("one 1", "two 1"), observed);
+    }
+
+    @Test
+    public void annotationKey() {
+        final ObserverManager mgr = new ObserverManager();
+        final List<String> observed = new ArrayList<>();
+        mgr.keyBy(Order.class, Order::getTenant);
+
+        mgr.addObserver(new Object() {
+            public void acme(@Observes(key = "acme") final Order order) {
+                observed.add("acme " + order.getNumber());
+            }
+        });
+
+        mgr.fireEvent(new Order("initech", 1));
+        mgr.fireEvent(new Order("acme", 2));
+
+        assertEquals(Arrays.asList("acme 2"), observed);
+    }
+
+    @Test
+    public void subtypesAndPhases() {
+        final ObserverManager mgr = new ObserverManager();
+        final List<String> observed = new ArrayList<>();
+        mgr.keyBy(Order.class, Order::getTenant);
+
+        mgr.addObserver(new Object() {
+            public void before(@Observes final BeforeEvent<Order> event) {
+                observed.add("before " + event.getEvent().getNumber());
+            }
+
+            public void observe(@Observes final Order event) {
+                observed.add("order " + event.getNumber());
+            }
+
+            public void after(@Observes final AfterEvent<Order> event) {
+                observed.add("after " + event.getEvent().getNumber());
+            }
+        }, "acme");
+
+        mgr.fireEvent(new Rush("initech", 1));
+        mgr.fireEvent(new Rush("acme", 2));
+
+        assertEquals(Arrays.asList("before 2", "order 2", "after 2"), observed);
+    }
+
+    @Test
+    public void keyFunctionAddedLater() {
+        final ObserverManager mgr = new ObserverManager();
+        final List<String> observed = new ArrayList<>();
+
+        mgr.addObserver(new Tenant("acme", observed), "acme");
+
+        // no key function yet, so the keyed observer cannot match
+        mgr.fireEvent(new Order("acme", 1));
+
+        mgr.keyBy(Order.class, Order::getTenant);
+        mgr.fireEvent(new Order("acme", 2));
+
+        assertEquals(Arrays.asList("acme 2"), observed);
+    }
+
+    @Test
+    public void removed() {
+        final ObserverManager mgr = new ObserverManager();
+        final List<String> observed = new ArrayList<>();
+        mgr.keyBy(Order.class, Order::getTenant);
+
+        final Tenant acme = new Tenant("acme", observed);
+        mgr.addObserver(acme, "acme");
+        mgr.fireEvent(new Order("acme", 1));
+
+        mgr.removeObserver(acme);
+        mgr.fireEvent(new Order("acme", 2));
+
+        assertEquals(Arrays.asList("acme 1"), observed);
+    }
+
+    public static class Order {
+        private final String tenant;
+        private final int number;
+
+        public Order(final String tenant, final int number) {
+            this.tenant = tenant;
+            this.number = number;
+        }
+
+        public String getTenant() {
+            return tenant;
+        }
+
+        public int getNumber() {
+            return number;
+        }
+    }
+
+    public static class Rush extends Order {
+        public Rush(final String tenant, final int number) {
+            super(tenant, number);
+        }
+    }
+
+    public static class Tenant {
+        private final String name;
+        private final List<String> observed;
+
+        public Tenant(final String name, final List<String> observed) {
+            this.name = name;
+            this.observed = observed;
+        }
+
+        public void observe(@Observes final Order order) {
+            observed.add(name + " " + order.getNumber());
+        }
+    }
+}
@@ -0,0 +1,140 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.tomitribe.pixie.observer;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.tomitribe.pixie.Observes;
+import org.tomitribe.pixie.System;
+import org.tomitribe.pixie.event.ObserverAdded;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Handler;
+import java.util.logging.LogRecord;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class UnobservedEventsTest {
+
+    private final List<String> logged = new ArrayList<>();
+
+    private final Handler handler = new Handler() {
+        @Override
+        public void publish(final LogRecord record) {
+            if (record.getMessage().startsWith("No observers")) logged.add(record.getMessage());
+        }
+
+        @Override
+        public void flush() {
+        }
+
+        @Override
+        public void close() {
+        }
+    };
+
+    @Before
+    public void listen() {
+        ObserverManager.logger().addHandler(handler);
+    }
+
+    @After
+    public void stop() {
+        ObserverManager.logger().removeHandler(handler);
+    }
+
+    @Test
+    public void loggedOnceAndCounted() {
+        final ObserverManager mgr = new ObserverManager();
+
+        for (int i = 0; i < 1000; i++) {
+            mgr.fireEvent(new Orange());
+        }
+        mgr.fireEvents(Arrays.asList(new Orange(), new Orange(), new Lemon()));
+
+        assertEquals(Arrays.asList(
+                "No observers for event " + Orange.class.getName(),
+                "No observers for event " + Lemon.class.getName()), logged);
+
+        final Map<Class<?>, Long> unobserved = mgr.getUnobservedEvents();
+        assertEquals(2, unobserved.size());
+        assertEquals(1002L, (long) unobserved.get(Orange.class));
+        assertEquals(1L, (long) unobserved.get(Lemon.class));
+    }
+
+    @Test
+    public void pixieEventsNotCounted() {
+        final ObserverManager mgr = new ObserverManager();
+        mgr.fireEvent(new ObserverAdded(this));
+
+        assertTrue(mgr.getUnobservedEvents().isEmpty());
+    }
+
+    @Test
+    public void observedEventsNotCounted() {
+        final ObserverManager mgr = new ObserverManager();
+        mgr.addObserver(new Object() {
+            public void observe(@Observes final Orange orange) {
+            }
+        });
+
+        mgr.fireEvent(new Orange());
+
+        assertFalse(mgr.getUnobservedEvents().containsKey(Orange.class));
+        assertTrue(logged.isEmpty());
+    }
+
+    @Test
+    public void interval() throws Exception {
+        final ObserverManager mgr = new ObserverManager();
+        mgr.setUnobservedLogInterval(1, TimeUnit.MILLISECONDS);
+
+        mgr.fireEvent(new Orange());
+        Thread.sleep(20);
+        mgr.fireEvent(new Orange());
+
+        assertEquals(Arrays.asList(
+                "No observers for event " + Orange.class.getName(),
+                "No observers for event " + Orange.class.getName() + " (fired 2 times)"), logged);
+    }
+
+    @Test
+    public void intervalFromProperties() throws Exception {
+        final Properties properties = new Properties();
+        properties.put("pixie.unobserved.log.interval", "1 millisecond");
+
+        final System system = new System(properties);
+
+        system.fireEvent(new Orange());
+        Thread.sleep(20);
+        system.fireEvent(new Orange());
+
+        assertEquals(2, logged.size());
+        assertEquals(2L, (long) system.getUnobservedEvents().get(Orange.class));
+    }
+
+    public static class Orange {
+    }
+
+    public static class Lemon {
+    }
+}
@@ -0,0 +1,125 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.tomitribe.pixie.observer;
+
+import org.junit.Test;
+import org.tomitribe.pixie.Observes;
+import org.tomitribe.pixie.event.ObserverRemoved;
+
+import java.lang.ref.WeakReference;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+public class WeakObserverTest {
+
+    @Test
+    public void collectedObserverIsPurged() throws Exception {
+        final ObserverManager mgr = new ObserverManager();
+        mgr.setMetricsEnabled(true);
+
+        Session session = new Session();
+        final WeakReference<Session> reference = new WeakReference<>(session);
+        assertTrue(mgr.addWeakObserver(session));
+
+        mgr.fireEvent("hello");
+        assertEquals(1, session.seen);
+        assertEquals(1, ObserverManager.countObservers(mgr.getInvocation(String.class)));
+
+        session = null;
+        awaitCollected(reference);
+
+        // the first fire afterwards finds the observer gone and purges it
+        mgr.fireEvent("again");
+        assertEquals(0, ObserverManager.countObservers(mgr.getInvocation(String.class)));
+        assertTrue(mgr.getMetrics().getObservers().isEmpty());
+    }
+
+    @Test
+    public void purgedOnNextRegistration() throws Exception {
+        final ObserverManager mgr = new ObserverManager();
+
+        Session session = new Session();
+        final WeakReference<Session> reference = new WeakReference<>(session);
+        mgr.addWeakObserver(session);
+
+        session = null;
+        awaitCollected(reference);
+
+        mgr.addObserver(new Object() {
+            public void observe(@Observes final Integer event) {
+            }
+        });
+        assertEquals(0, ObserverManager.countObservers(mgr.getInvocation(String.class)));
+    }
+
+    @Test
+    public void reachableObserverStays() {
+        final ObserverManager mgr = new ObserverManager();
+        final Session session = new Session();
+        mgr.addWeakObserver(session);
+
+        for (int i = 0; i < 3; i++) {
+            java.lang.System.gc();
+            mgr.fireEvent("hello");
+        }
+
+        assertEquals(3, session.seen);
+    }
+
+    @Test
+    public void removeWeakObserver() {
+        final ObserverManager mgr = new ObserverManager();
+        final Session session = new Session();
+        final List<Object> removed = new ArrayList<>();
+
+        mgr.addObserver(new Object() {
+            public void removed(@Observes final ObserverRemoved event) {
+                removed.add(event.getObserver());
+            }
+        });
+
+        mgr.addWeakObserver(session);
+        assertFalse(mgr.addObserver(session));
+        assertTrue(mgr.removeObserver(session));
+
+        mgr.fireEvent("hello");
+        assertEquals(0, session.seen);
+        assertEquals(1, removed.size());
+        assertEquals(session, removed.get(0));
+    }
+
+    private static void awaitCollected(final WeakReference<?> reference) throws InterruptedException {
+        for (int i = 0; i < 50 && reference.get() != null; i++) {
+            java.lang.System.gc();
+            Thread.sleep(20);
+        }
+        assertNull("observer was not collected", reference.get());
+
+        // give the reference handler a moment to enqueue it
+        Thread.sleep(50);
+    }
+
+    public static class Session {
+        private int seen;
+
+        public void observe(@Observes final String event) {
+            seen++;
+        }
+    }
+}
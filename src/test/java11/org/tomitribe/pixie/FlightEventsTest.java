@@ -0,0 +1,109 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.tomitribe.pixie;
+
+import jdk.jfr.Recording;
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordingFile;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.List;
+import java.util.Properties;
+import java.util.stream.Collectors;
+
+/**
+ * Runs against the multi-release jar, so the java11 FlightEvents overlay records into a real
+ * JFR recording instead of the no-op classes compiled for Java 8.
+ */
+public class FlightEventsTest extends Assert {
+
+    @Test
+    public void recordsConstructionFireAndObserver() throws Exception {
+        final Path file = Files.createTempFile("pixie", ".jfr");
+        try {
+            try (Recording recording = new Recording()) {
+                recording.enable("org.tomitribe.pixie.ComponentConstruction");
+                recording.enable("org.tomitribe.pixie.Fire");
+                recording.enable("org.tomitribe.pixie.ObserverInvocation").withThreshold(Duration.ZERO);
+                recording.start();
+
+                final Properties properties = new Properties();
+                properties.put("listener", "new://" + Listener.class.getName());
+
+                final System system = new System(properties);
+                system.fireEvent(new Ping());
+                assertEquals(1, system.get(Listener.class).pings);
+
+                recording.stop();
+                recording.dump(file);
+            }
+
+            final List<RecordedEvent> events = RecordingFile.readAllEvents(file);
+
+            final RecordedEvent construction = single(events, "org.tomitribe.pixie.ComponentConstruction");
+            assertEquals(Listener.class.getName(), construction.getClass("componentClass").getName());
+            assertEquals("listener", construction.getString("name"));
+            assertEquals("constructor", construction.getString("producer"));
+
+            final RecordedEvent fire = single(events, "org.tomitribe.pixie.Fire");
+            assertEquals(Ping.class.getName(), fire.getClass("eventType").getName());
+            assertEquals(1, fire.getInt("observers"));
+
+            final RecordedEvent observer = single(events, "org.tomitribe.pixie.ObserverInvocation");
+            assertEquals(Listener.class.getName(), observer.getClass("observerClass").getName());
+            assertEquals("observe", observer.getString("method"));
+            assertEquals(Ping.class.getName(), observer.getClass("eventType").getName());
+        } finally {
+            Files.deleteIfExists(file);
+        }
+    }
+
+    private static RecordedEvent single(final List<RecordedEvent> events, final String name) {
+        final List<RecordedEvent> matching = events.stream()
+                .filter(event -> event.getEventType().getName().equals(name))
+                .filter(FlightEventsTest::isOurs)
+                .collect(Collectors.toList());
+        assertEquals(name, 1, matching.size());
+        return matching.get(0);
+    }
+
+    /**
+     * Pixie fires its own lifecycle events while the System starts; keep only those about Ping
+     * and Listener.
+     */
+    private static boolean isOurs(final RecordedEvent event) {
+        for (final String field : new String[]{"componentClass", "eventType"}) {
+            if (event.hasField(field)) {
+                final String type = event.getClass(field).getName();
+                return type.equals(Ping.class.getName()) || type.equals(Listener.class.getName());
+            }
+        }
+        return false;
+    }
+
+    public static class Ping {
+    }
+
+    public static class Listener {
+        private int pings;
+
+        public void observe(@Observes final Ping ping) {
+            pings++;
+        }
+    }
+}